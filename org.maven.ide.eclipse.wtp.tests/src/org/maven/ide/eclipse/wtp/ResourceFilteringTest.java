@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2008 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.maven.ide.eclipse.wtp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.runtime.CoreException;
+import org.maven.ide.eclipse.project.ResolverConfiguration;
+
+public class ResourceFilteringTest extends AbstractWTPTestCase {
+
+  private static final String WEB_RESOURCES = "target/m2eclipse-wtp/webresources";
+
+  public void testIncrementalWebResourceFiltering() throws Exception {
+    IProject project = importProject("projects/web-resource-filtering/pom.xml", new ResolverConfiguration());
+    waitForJobsToComplete();
+    assertMarkers(project, 0);
+
+    build(project, IncrementalProjectBuilder.FULL_BUILD);
+    IFolder output = project.getFolder(WEB_RESOURCES);
+    assertContent("one hello", output.getFile("one.txt"));
+    assertContent("override hello", output.getFile("shared.txt"));
+
+    //Changed files are filtered again
+    setContent(project.getFile("src/main/webresources/one.txt"), "one changed ${greeting}");
+    build(project, IncrementalProjectBuilder.INCREMENTAL_BUILD);
+    assertContent("one changed hello", output.getFile("one.txt"));
+
+    //Files copied by a later resource still win
+    setContent(project.getFile("src/main/webresources/shared.txt"), "base changed ${greeting}");
+    build(project, IncrementalProjectBuilder.INCREMENTAL_BUILD);
+    assertContent("override hello", output.getFile("shared.txt"));
+
+    //Removing an overriding file brings back the file of the other resource
+    project.getFile("src/main/overrides/shared.txt").delete(true, monitor);
+    build(project, IncrementalProjectBuilder.INCREMENTAL_BUILD);
+    assertContent("base changed hello", output.getFile("shared.txt"));
+
+    //Removing a file removes its filtered copy
+    project.getFile("src/main/webresources/one.txt").delete(true, monitor);
+    build(project, IncrementalProjectBuilder.INCREMENTAL_BUILD);
+    assertFalse(output.getFile("one.txt").exists());
+    assertTrue(output.getFile("shared.txt").exists());
+  }
+
+  public void testNativeFilteringMatchesMojo() throws Exception {
+    IProject[] projects = importProjects("projects/resource-filtering-equivalence", new String[] {"native/pom.xml",
+        "mojo/pom.xml"}, new ResolverConfiguration());
+    waitForJobsToComplete();
+    IProject nativeProject = projects[0];
+    IProject mojoProject = projects[1];
+    assertMarkers(nativeProject, 0);
+    assertMarkers(mojoProject, 0);
+
+    build(nativeProject, IncrementalProjectBuilder.FULL_BUILD);
+    build(mojoProject, IncrementalProjectBuilder.FULL_BUILD);
+
+    IFolder nativeOutput = nativeProject.getFolder(WEB_RESOURCES);
+    IFolder mojoOutput = mojoProject.getFolder(WEB_RESOURCES);
+    for(String path : new String[] {"expressions.txt", "nested/nested.txt"}) {
+      assertEquals(path, getContent(mojoOutput.getFile(path)), getContent(nativeOutput.getFile(path)));
+    }
+    assertContent("nested hello", nativeOutput.getFile("nested/nested.txt"));
+    assertFalse(nativeOutput.getFile("nested/excluded.skip").exists());
+    assertFalse(mojoOutput.getFile("nested/excluded.skip").exists());
+  }
+
+  private void build(IProject project, int kind) throws Exception {
+    project.build(kind, monitor);
+    waitForJobsToComplete();
+    project.getFolder(WEB_RESOURCES).refreshLocal(IResource.DEPTH_INFINITE, monitor);
+  }
+
+  private void setContent(IFile file, String content) throws CoreException {
+    file.setContents(new ByteArrayInputStream(content.getBytes()), true, false, monitor);
+  }
+
+  private static void assertContent(String expected, IFile file) throws Exception {
+    assertEquals(expected, getContent(file).trim());
+  }
+
+  private static String getContent(IFile file) throws Exception {
+    assertTrue(file + " is missing", file.exists());
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    InputStream is = file.getContents(true);
+    try {
+      byte[] buffer = new byte[1024];
+      int n;
+      while((n = is.read(buffer)) > -1) {
+        content.write(buffer, 0, n);
+      }
+    } finally {
+      is.close();
+    }
+    return content.toString("UTF-8");
+  }
+}
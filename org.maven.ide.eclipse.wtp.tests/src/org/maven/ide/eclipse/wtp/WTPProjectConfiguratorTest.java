@@ -22,9 +22,14 @@ import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.resources.WorkspaceJob;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.core.IClasspathContainer;
 import org.eclipse.jdt.core.IClasspathEntry;
 import org.eclipse.jdt.core.IJavaProject;
@@ -39,6 +44,8 @@ import org.eclipse.jst.j2ee.project.facet.IJ2EEFacetConstants;
 import org.eclipse.jst.j2ee.web.project.facet.WebFacetUtils;
 import org.eclipse.jst.javaee.application.Application;
 import org.eclipse.jst.javaee.application.Module;
+import org.eclipse.jst.javaee.core.Description;
+import org.eclipse.jst.javaee.core.DisplayName;
 import org.eclipse.jst.javaee.core.SecurityRole;
 import org.eclipse.wst.common.componentcore.ComponentCore;
 import org.eclipse.wst.common.componentcore.internal.util.ComponentUtilities;
@@ -104,6 +111,70 @@ public class WTPProjectConfiguratorTest extends AbstractWTPTestCase {
     assertEquals(projects[1], references[0].getReferencedComponent().getProject());
   }
 
+  public void testModuleDependenciesSetWhenJobIsDone() throws Exception {
+    final IProject[] projects = importProjects("projects/import-order-matters2", new String[] {"pom.xml",
+        "project1-ear/pom.xml", "project2-war/pom.xml", "project3-jar/pom.xml"}, new ResolverConfiguration());
+    waitForJobsToComplete();
+    final IProject ear = projects[1];
+    final IProject war = projects[2];
+    IProject jar = projects[3];
+    final IVirtualComponent earComponent = ComponentCore.createComponent(ear);
+    final IVirtualComponent warComponent = ComponentCore.createComponent(war);
+
+    final ConfigurationSession[] session = new ConfigurationSession[1];
+    final int[] referencesInJob = new int[2];
+    WorkspaceJob job = new WorkspaceJob("Configure import-order-matters2") {
+      public IStatus runInWorkspace(IProgressMonitor monitor) throws CoreException {
+        IProjectConfigurationManager configurationManager = MavenPlugin.getDefault().getProjectConfigurationManager();
+        earComponent.setReferences(new IVirtualReference[0]);
+        warComponent.setReferences(new IVirtualReference[0]);
+        //Dependents first
+        configurationManager.updateProjectConfiguration(ear, new ResolverConfiguration(), "", monitor);
+        configurationManager.updateProjectConfiguration(war, new ResolverConfiguration(), "", monitor);
+        session[0] = ConfigurationSession.getCurrent();
+        referencesInJob[0] = earComponent.getReferences().length;
+        referencesInJob[1] = warComponent.getReferences().length;
+        return Status.OK_STATUS;
+      }
+    };
+    job.schedule();
+    job.join();
+    assertTrue(job.getResult().toString(), job.getResult().isOK());
+    Job.getJobManager().join(ConfigurationSession.JOB_FAMILY, monitor);
+
+    //Module dependencies are not set while the job configures projects
+    assertNotNull(session[0]);
+    assertEquals(0, referencesInJob[0]);
+    assertEquals(0, referencesInJob[1]);
+
+    //but once it's done, dependencies first
+    assertEquals(Arrays.asList(war, ear), session[0].getUpdatedProjects());
+    IVirtualReference[] warRefs = warComponent.getReferences();
+    assertEquals(toString(warRefs), 1, warRefs.length);
+    assertEquals(jar, warRefs[0].getReferencedComponent().getProject());
+    assertNotNull(toString(earComponent.getReferences()), earComponent.getReference(war.getName()));
+  }
+
+  public void testDependenciesPreConfiguredOncePerSession() throws Exception {
+    IProject[] projects = importProjects("projects/MNGECLIPSE-1627/", //
+        new String[] {"ear/pom.xml", "utility1/pom.xml", "utility2/pom.xml", "war-fullskinny/pom.xml",
+            "war-mixedskinny/pom.xml",}, new ResolverConfiguration());
+    waitForJobsToComplete();
+
+    IProjectConfigurationManager configurationManager = MavenPlugin.getDefault().getProjectConfigurationManager();
+    ConfigurationSession session = ConfigurationSession.begin();
+    try {
+      configurationManager.updateProjectConfiguration(projects[3], new ResolverConfiguration(), "", monitor);
+      configurationManager.updateProjectConfiguration(projects[4], new ResolverConfiguration(), "", monitor);
+    } finally {
+      session.end(monitor);
+    }
+
+    //Both wars depend on utility1 and utility2, which are only pre-configured for the first one
+    assertEquals(2, session.getPreConfigurationMisses());
+    assertEquals(2, session.getPreConfigurationHits());
+  }
+
   public void testSimple04_testScopeDependency() throws Exception {
     IProject[] projects = importProjects("projects/simple", //
         new String[] {"t01/pom.xml", "p04/pom.xml"}, new ResolverConfiguration());
@@ -877,6 +948,113 @@ public class WTPProjectConfiguratorTest extends AbstractWTPTestCase {
      assertEquals("/MNGECLIPSE-1644-war2", war2ContextRoot);
   }
 
+  public void testApplicationXmlGeneratedInProcess() throws Exception {
+    IProject[] projects = importProjects("projects/application-xml/", //
+        new String[] {"core/pom.xml", "web/pom.xml", "ear-native/pom.xml", "ear-mojo/pom.xml"},
+        new ResolverConfiguration());
+    waitForJobsToComplete();
+
+    IProject nativeEar = projects[2];
+    IProject mojoEar = projects[3];
+    assertMarkers(nativeEar, 0);
+    assertMarkers(mojoEar, 0);
+
+    String applicationXmlRelativePath = "src/main/application/META-INF/application.xml";
+    IFile applicationXml = nativeEar.getFile(applicationXmlRelativePath);
+    assertTrue(applicationXml.exists());
+    assertTrue(mojoEar.getFile(applicationXmlRelativePath).exists());
+
+    Application app = (Application)ModelProviderManager.getModelProvider(nativeEar).getModelObject();
+    assertEquals(2, app.getModules().size());
+    Module webModule = app.getFirstModule("web-0.0.1-SNAPSHOT.war");
+    assertNotNull("missing webmodule", webModule);
+    assertEquals("/web-root", webModule.getWeb().getContextRoot());
+    assertNotNull("missing jarmodule", app.getFirstModule("core-0.0.1-SNAPSHOT.jar"));
+    assertEquals(2, app.getSecurityRoles().size());
+
+    //ear-mojo only differs by a configuration forcing the execution of the maven-ear-plugin
+    Application mojoApp = (Application)ModelProviderManager.getModelProvider(mojoEar).getModelObject();
+    assertEquals(toString(mojoApp), toString(app));
+
+    //Unchanged descriptors are not written again
+    long modificationStamp = applicationXml.getModificationStamp();
+    IProjectConfigurationManager configurationManager = MavenPlugin.getDefault().getProjectConfigurationManager();
+    configurationManager.updateProjectConfiguration(nativeEar, new ResolverConfiguration(), "", monitor);
+    waitForJobsToComplete();
+    assertEquals(modificationStamp, applicationXml.getModificationStamp());
+  }
+
+  private static String toString(Application app) {
+    StringBuilder sb = new StringBuilder();
+    for(Object displayName : app.getDisplayNames()) {
+      sb.append("display-name=").append(((DisplayName) displayName).getValue()).append('\n');
+    }
+    for(Object description : app.getDescriptions()) {
+      sb.append("description=").append(((Description) description).getValue()).append('\n');
+    }
+    for(Object o : app.getModules()) {
+      Module module = (Module) o;
+      if(module.getWeb() != null) {
+        sb.append("web=").append(module.getWeb().getWebUri()).append(',').append(module.getWeb().getContextRoot());
+      } else {
+        sb.append("java=").append(module.getJava()).append(",ejb=").append(module.getEjb()).append(",connector=")
+            .append(module.getConnector());
+      }
+      sb.append(",alt-dd=").append(module.getAltDd()).append('\n');
+    }
+    for(Object o : app.getSecurityRoles()) {
+      SecurityRole role = (SecurityRole) o;
+      sb.append("security-role=").append(role.getId()).append(',').append(role.getRoleName());
+      for(Object description : role.getDescriptions()) {
+        sb.append(',').append(((Description) description).getValue());
+      }
+      sb.append('\n');
+    }
+    sb.append("library-directory=").append(app.getLibraryDirectory());
+    return sb.toString();
+  }
+
+  public void testEarConfigurationReadAgainOnPomChange() throws Exception {
+    IProject[] projects = importProjects("projects/ear-configuration-cache", new String[] {"core/pom.xml",
+        "ear/pom.xml"}, new ResolverConfiguration());
+    waitForJobsToComplete();
+    IProject ear = projects[1];
+    assertMarkers(ear, 0);
+
+    IVirtualComponent comp = ComponentCore.createComponent(ear);
+    assertEquals("first.jar", comp.getReference("cache-core").getArchiveName());
+
+    //The ear configuration read by the previous configuration must not be reused
+    updateProject(ear, "pom.step2.xml");
+    assertMarkers(ear, 0);
+    comp = ComponentCore.createComponent(ear);
+    assertEquals("second.jar", comp.getReference("cache-core").getArchiveName());
+  }
+
+  public void testEarContentDirectoryChange() throws Exception {
+    IProject ear = importProject("projects/ear-content-dir/pom.xml", new ResolverConfiguration());
+    waitForJobsToComplete();
+    assertMarkers(ear, 0);
+    assertUnderlyingResource(ear, ear.getFolder("src/main/application"));
+
+    //The ear facet is kept, but the content directory must still be linked
+    updateProject(ear, "pom.step2.xml");
+    assertMarkers(ear, 0);
+    assertUnderlyingResource(ear, ear.getFolder("src/main/earcontent"));
+    //and the previous one unlinked
+    assertFalse(Arrays.asList(getUnderlyingResources(ear)).contains(ear.getFolder("src/main/application")));
+  }
+
+  private static void assertUnderlyingResource(IProject project, IResource expected) {
+    IResource[] underlyingResources = getUnderlyingResources(project);
+    for(IResource resource : underlyingResources) {
+      if(expected.equals(resource)) {
+        return;
+      }
+    }
+    fail(expected + " is not linked to the root of " + project + " : " + Arrays.asList(underlyingResources));
+  }
+
   public void testMNGECLIPSE2145_finalNames() throws Exception {
     
     IProject[] projects = importProjects(
@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2008 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.maven.ide.eclipse.wtp.internal;
+
+import junit.framework.TestCase;
+
+import org.maven.ide.eclipse.wtp.internal.AntPathMatcher.CompiledPattern;
+
+
+/**
+ * Compiled patterns must match exactly the same paths as {@link AntPathMatcher#match(String, String)}.
+ *
+ * @author Fred Bricon
+ */
+public class AntPathMatcherTest extends TestCase {
+
+  private static final String[] PATTERNS = {"WEB-INF/lib/junit-4.7.jar", "WEB-INF/lib/*.jar",
+      "WEB-INF/lib/junit-*.jar", "WEB-INF/lib/j?nit-4.7.jar", "**/*.jar", "**/junit-*.jar", "**", "**/**", "*",
+      "WEB-INF/**", "WEB-INF/**/lib/*.jar", "WEB-INF/*/*.jar", "WEB-INF/lib/", "WEB-INF/lib", "/WEB-INF/lib/*.jar",
+      "**/lib/**/*.jar", "WEB-INF/lib/*-*-*.jar", "WEB-INF/lib/**/*.jar", "", "WEB-INF//lib/*.jar"};
+
+  private static final String[] PATHS = {"WEB-INF/lib/junit-4.7.jar", "WEB-INF/lib/junit-4.7.zip",
+      "WEB-INF/lib/spring-web-3.0.2.RELEASE.jar", "WEB-INF/lib/nested/junit-4.7.jar", "WEB-INF/lib",
+      "WEB-INF/lib/", "/WEB-INF/lib/junit-4.7.jar", "junit-4.7.jar", "WEB-INF/junit-4.7.jar",
+      "META-INF/lib/junit-4.7.jar", "WEB-INF/classes/lib/junit-4.7.jar", "", "WEB-INF//lib/junit-4.7.jar"};
+
+  private final AntPathMatcher matcher = new AntPathMatcher();
+
+  public void testCompiledPatternsMatchLikeAntPathMatcher() {
+    for(String pattern : PATTERNS) {
+      CompiledPattern compiled = matcher.compile(pattern);
+      assertEquals(pattern, compiled.getPattern());
+      for(String path : PATHS) {
+        boolean expected = matcher.match(pattern, path);
+        String message = "'" + pattern + "' vs '" + path + "'";
+        assertEquals(message, expected, compiled.match(path));
+        assertEquals(message, expected, compiled.match(path, matcher.tokenizePath(path)));
+      }
+    }
+  }
+
+  public void testLiteralPatterns() {
+    CompiledPattern compiled = matcher.compile("WEB-INF/lib/junit-4.7.jar");
+    assertTrue(compiled.match("WEB-INF/lib/junit-4.7.jar"));
+    assertFalse(compiled.match("/WEB-INF/lib/junit-4.7.jar"));
+    assertFalse(compiled.match("WEB-INF/lib/junit-4.7.jar/"));
+    assertFalse(compiled.match("WEB-INF/lib/junit-4.8.jar"));
+  }
+}
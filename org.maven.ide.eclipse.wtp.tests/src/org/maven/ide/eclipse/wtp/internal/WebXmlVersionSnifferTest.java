@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2008 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.maven.ide.eclipse.wtp.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import junit.framework.TestCase;
+
+
+/**
+ * @author Fred Bricon
+ */
+public class WebXmlVersionSnifferTest extends TestCase {
+
+  private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+
+  private static final String WEB_APP_25 = "<web-app xmlns=\"http://java.sun.com/xml/ns/javaee\"\n"
+      + "    xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n"
+      + "    xsi:schemaLocation=\"http://java.sun.com/xml/ns/javaee http://java.sun.com/xml/ns/javaee/web-app_2_5.xsd\"\n"
+      + "    version=\"2.5\">\n  <display-name>test</display-name>\n</web-app>\n";
+
+  public void testDoctype22() throws Exception {
+    assertEquals("2.2", sniff(XML_DECLARATION + "<!DOCTYPE web-app PUBLIC "
+        + "\"-//Sun Microsystems, Inc.//DTD Web Application 2.2//EN\" \"http://java.sun.com/j2ee/dtds/web-app_2_2.dtd\">\n"
+        + "<web-app>\n</web-app>"));
+  }
+
+  public void testDoctype23() throws Exception {
+    assertEquals("2.3", sniff(XML_DECLARATION + "<!DOCTYPE web-app PUBLIC "
+        + "\"-//Sun Microsystems, Inc.//DTD Web Application 2.3//EN\" \"http://java.sun.com/dtd/web-app_2_3.dtd\">\n"
+        + "<web-app>\n</web-app>"));
+  }
+
+  public void testDoctypeWithInternalSubset() throws Exception {
+    assertEquals("2.3", sniff("<!DOCTYPE web-app SYSTEM \"http://java.sun.com/dtd/web-app_2_3.dtd\" "
+        + "[<!ENTITY name \"a > b\">]>\n<web-app/>"));
+  }
+
+  public void testNamespaced24() throws Exception {
+    assertEquals("2.4", sniff(XML_DECLARATION + "<web-app xmlns=\"http://java.sun.com/xml/ns/j2ee\" version='2.4'/>"));
+  }
+
+  public void testNamespaced25() throws Exception {
+    assertEquals("2.5", sniff(XML_DECLARATION + WEB_APP_25));
+  }
+
+  public void testPrefixedNamespace30() throws Exception {
+    assertEquals("3.0", sniff(XML_DECLARATION
+        + "<javaee:web-app xmlns:javaee=\"http://java.sun.com/xml/ns/javaee\" version=\"3.0\">\n</javaee:web-app>"));
+  }
+
+  public void testUtf8Bom() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    bytes.write(new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
+    bytes.write((XML_DECLARATION + WEB_APP_25).getBytes("UTF-8"));
+    assertEquals("2.5", WebXmlVersionSniffer.sniff(new ByteArrayInputStream(bytes.toByteArray())));
+  }
+
+  public void testUtf16() throws Exception {
+    String xml = "<?xml version=\"1.0\" encoding=\"UTF-16\"?>\n" + WEB_APP_25;
+    assertEquals("2.5", WebXmlVersionSniffer.sniff(new ByteArrayInputStream(xml.getBytes("UTF-16"))));
+    assertEquals("2.5", WebXmlVersionSniffer.sniff(new ByteArrayInputStream(xml.getBytes("UTF-16LE"))));
+  }
+
+  public void testCommentsAndProcessingInstructionsBeforeRoot() throws Exception {
+    assertEquals("3.0", sniff(XML_DECLARATION + "<!-- <web-app version=\"2.4\"> -->\n"
+        + "<?xml-stylesheet type=\"text/xsl\" href=\"web.xsl\"?>\n<!---->"
+        + "<web-app version=\"3.0\" xmlns=\"http://java.sun.com/xml/ns/javaee\"></web-app>"));
+  }
+
+  public void testPrologSpanningSeveralChunks() throws Exception {
+    StringBuilder xml = new StringBuilder(XML_DECLARATION);
+    for(int i = 0; i < 500; i++ ) {
+      xml.append("<!-- comment ").append(i).append(" -->\n");
+    }
+    xml.append(WEB_APP_25);
+    assertEquals("2.5", sniff(xml.toString()));
+  }
+
+  public void testTruncatedInput() throws Exception {
+    assertNull(sniff(""));
+    assertNull(sniff(XML_DECLARATION));
+    assertNull(sniff(XML_DECLARATION + "<!-- unterminated comment"));
+    assertNull(sniff(XML_DECLARATION + "<!DOCTYPE web-app PUBLIC \"-//Sun Microsystems, Inc.//DTD Web Applic"));
+    assertNull(sniff(XML_DECLARATION + "<web-app xmlns=\"http://java.sun.com/xml/ns/javaee\" version=\"2."));
+  }
+
+  public void testUnknownVersions() throws Exception {
+    assertNull(sniff(XML_DECLARATION + "<web-app version=\"4.0\"/>"));
+    assertNull(sniff(XML_DECLARATION + "<web-app/>"));
+    assertNull(sniff(XML_DECLARATION + "<application version=\"5\"/>"));
+    assertNull(sniff("not xml"));
+  }
+
+  private static String sniff(String xml) throws Exception {
+    return WebXmlVersionSniffer.sniff(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+  }
+}
@@ -9,14 +9,16 @@
 package org.maven.ide.eclipse.wtp;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.project.MavenProject;
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
@@ -30,15 +32,12 @@ import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jst.common.project.facet.JavaFacetUtils;
 import org.eclipse.jst.j2ee.classpathdep.IClasspathDependencyConstants;
 import org.eclipse.wst.common.componentcore.ComponentCore;
-import org.eclipse.wst.common.componentcore.internal.StructureEdit;
-import org.eclipse.wst.common.componentcore.internal.WorkbenchComponent;
 import org.eclipse.wst.common.componentcore.resources.IVirtualComponent;
 import org.eclipse.wst.common.componentcore.resources.IVirtualFile;
 import org.eclipse.wst.common.componentcore.resources.IVirtualFolder;
 import org.eclipse.wst.common.componentcore.resources.IVirtualReference;
+import org.eclipse.wst.common.componentcore.resources.IVirtualResource;
 import org.eclipse.wst.common.project.facet.core.IFacetedProject;
-import org.eclipse.wst.common.project.facet.core.IFacetedProject.Action;
-import org.eclipse.wst.common.project.facet.core.IProjectFacetVersion;
 import org.eclipse.wst.common.project.facet.core.ProjectFacetsManager;
 import org.maven.ide.eclipse.MavenPlugin;
 import org.maven.ide.eclipse.jdt.BuildPathManager;
@@ -84,6 +83,15 @@ abstract class AbstractProjectConfiguratorDelegate implements IProjectConfigurat
   protected abstract void configure(IProject project, MavenProject mavenProject, IProgressMonitor monitor) throws CoreException;
 
   protected List<IMavenProjectFacade> getWorkspaceDependencies(IProject project, MavenProject mavenProject) {
+    ConfigurationSession session = ConfigurationSession.getCurrent();
+    if(session != null) {
+      return session.getWorkspaceDependencies(project, mavenProject);
+    }
+    return collectWorkspaceDependencies(projectManager, project, mavenProject);
+  }
+
+  static List<IMavenProjectFacade> collectWorkspaceDependencies(MavenProjectManager projectManager, IProject project,
+      MavenProject mavenProject) {
     Set<IProject> projects = new HashSet<IProject>();
     List<IMavenProjectFacade> dependencies = new ArrayList<IMavenProjectFacade>();
     Set<Artifact> artifacts = mavenProject.getArtifacts();
@@ -108,19 +116,10 @@ abstract class AbstractProjectConfiguratorDelegate implements IProjectConfigurat
     }
 
     IFacetedProject facetedProject = ProjectFacetsManager.create(project, true, monitor);
-    Set<Action> actions = new LinkedHashSet<Action>();
-    installJavaFacet(actions, project, facetedProject);
-
-    if(!facetedProject.hasProjectFacet(WTPProjectsUtil.UTILITY_FACET)) {
-      actions.add(new IFacetedProject.Action(IFacetedProject.Action.Type.INSTALL, WTPProjectsUtil.UTILITY_10, null));
-    } else if(!facetedProject.hasProjectFacet(WTPProjectsUtil.UTILITY_10)) {
-      actions.add(new IFacetedProject.Action(IFacetedProject.Action.Type.VERSION_CHANGE, WTPProjectsUtil.UTILITY_10,
-          null));
-    }
-    
-    if (!actions.isEmpty()) {
-      facetedProject.modify(actions, monitor);      
-    }
+    FacetPlan plan = new FacetPlan(facetedProject);
+    requireJavaFacet(plan, project);
+    plan.require(WTPProjectsUtil.UTILITY_10, true);
+    plan.apply(monitor);
     
     //MNGECLIPSE-904 remove tests folder links for utility jars
     //TODO handle modules in a parent pom (the following doesn't work)
@@ -130,25 +129,63 @@ abstract class AbstractProjectConfiguratorDelegate implements IProjectConfigurat
     setNonDependencyAttributeToContainer(project, monitor);
   }
 
-  protected void installJavaFacet(Set<Action> actions, IProject project, IFacetedProject facetedProject) {
-    IProjectFacetVersion javaFv = JavaFacetUtils.compilerLevelToFacet(JavaFacetUtils.getCompilerLevel(project));
-    if(!facetedProject.hasProjectFacet(JavaFacetUtils.JAVA_FACET)) {
-      actions.add(new IFacetedProject.Action(IFacetedProject.Action.Type.INSTALL, javaFv, null));
-    } else if(!facetedProject.hasProjectFacet(javaFv)) {
-      actions.add(new IFacetedProject.Action(IFacetedProject.Action.Type.VERSION_CHANGE, javaFv, null));
+  /**
+   * Requires the java facet version matching the compiler level of the project.
+   */
+  protected void requireJavaFacet(FacetPlan plan, IProject project) {
+    plan.require(JavaFacetUtils.compilerLevelToFacet(JavaFacetUtils.getCompilerLevel(project)), true);
+  }
+
+  /**
+   * Links the content directory of a JEE module to the root of its component, if it's not linked yet. WTP links it
+   * when the facet is installed, but a facet kept installed doesn't follow a change of the content directory : the
+   * previous content directory is unlinked. The source and resource folders of the project, which may be linked to the
+   * root too, are kept.
+   */
+  protected void linkContentDirectory(IProject project, MavenProject mavenProject, String contentDir,
+      IProgressMonitor monitor) throws CoreException {
+    IVirtualComponent component = ComponentCore.createComponent(project);
+    if(component == null || contentDir == null) {
+      return;
+    }
+    IPath contentPath = new Path(contentDir);
+    IFolder contentFolder = project.getFolder(contentPath);
+    IVirtualFolder rootFolder = component.getRootFolder();
+    IContainer[] rootContainers = rootFolder.getUnderlyingFolders();
+    for(IContainer folder : rootContainers) {
+      if(contentFolder.equals(folder)) {
+        return;
+      }
     }
+    Set<IPath> sourceLocations = new HashSet<IPath>();
+    sourceLocations.addAll(Arrays.asList(MavenProjectUtils.getSourceLocations(project,
+        mavenProject.getCompileSourceRoots())));
+    sourceLocations.addAll(Arrays.asList(MavenProjectUtils.getResourceLocations(project, mavenProject.getResources())));
+    for(IContainer folder : rootContainers) {
+      IPath folderPath = folder.getProjectRelativePath();
+      if(project.equals(folder.getProject()) && !sourceLocations.contains(folderPath)) {
+        rootFolder.removeLink(folderPath, IVirtualResource.NONE, monitor);
+      }
+    }
+    rootFolder.createLink(contentPath, IVirtualResource.NONE, monitor);
   }
 
   protected void removeTestFolderLinks(IProject project, MavenProject mavenProject, IProgressMonitor monitor,
       String folder) throws CoreException {
     IVirtualComponent component = ComponentCore.createComponent(project);
     if (component != null){
-      IVirtualFolder jsrc = component.getRootFolder().getFolder(folder);
-      for(IPath location : MavenProjectUtils.getSourceLocations(project, mavenProject.getTestCompileSourceRoots())) {
-        jsrc.removeLink(location, 0, monitor);
-      }
-      for(IPath location : MavenProjectUtils.getResourceLocations(project, mavenProject.getTestResources())) {
-        jsrc.removeLink(location, 0, monitor);
+      ComponentTransaction transaction = ComponentTransaction.begin(project);
+      try {
+        IVirtualFolder jsrc = component.getRootFolder().getFolder(folder);
+        for(IPath location : MavenProjectUtils.getSourceLocations(project, mavenProject.getTestCompileSourceRoots())) {
+          jsrc.removeLink(location, 0, monitor);
+        }
+        for(IPath location : MavenProjectUtils.getResourceLocations(project, mavenProject.getTestResources())) {
+          jsrc.removeLink(location, 0, monitor);
+        }
+        transaction.commit(monitor);
+      } finally {
+        transaction.dispose();
       }
     }
   }
@@ -162,6 +199,10 @@ abstract class AbstractProjectConfiguratorDelegate implements IProjectConfigurat
     updateContainerAttributes(project, NONDEPENDENCY_ATTRIBUTE, IClasspathDependencyConstants.CLASSPATH_COMPONENT_DEPENDENCY, monitor);
   }
 
+  /**
+   * Adds an attribute to the Maven classpath container, and removes another one. The raw classpath is only written if
+   * the attributes of the container actually change, as setting it triggers a classpath change and a build.
+   */
   protected void updateContainerAttributes(IProject project, IClasspathAttribute attributeToAdd, String attributeToDelete, IProgressMonitor monitor)
   throws JavaModelException {
     IJavaProject javaProject = JavaCore.create(project);
@@ -170,20 +211,25 @@ abstract class AbstractProjectConfiguratorDelegate implements IProjectConfigurat
     for(int i = 0; i < cp.length; i++ ) {
       if(IClasspathEntry.CPE_CONTAINER == cp[i].getEntryKind()
           && BuildPathManager.isMaven2ClasspathContainer(cp[i].getPath())) {
+        IClasspathAttribute[] oldAttrs = cp[i].getExtraAttributes();
         LinkedHashMap<String, IClasspathAttribute> attrs = new LinkedHashMap<String, IClasspathAttribute>();
-        for(IClasspathAttribute attr : cp[i].getExtraAttributes()) {
+        for(IClasspathAttribute attr : oldAttrs) {
           if (!attr.getName().equals(attributeToDelete)) {
             attrs.put(attr.getName(), attr);            
           }
         }
         attrs.put(attributeToAdd.getName(), attributeToAdd);
         IClasspathAttribute[] newAttrs = attrs.values().toArray(new IClasspathAttribute[attrs.size()]);
+        if(Arrays.equals(oldAttrs, newAttrs)) {
+          //The container already has the right attributes
+          return;
+        }
         cp[i] = JavaCore.newContainerEntry(cp[i].getPath(), cp[i].getAccessRules(), newAttrs, cp[i].isExported());
         break;
       }
-}
-javaProject.setRawClasspath(cp, monitor);
-}
+    }
+    javaProject.setRawClasspath(cp, monitor);
+  }
 
   /**
    * @param dependencyMavenProjectFacade
@@ -193,6 +239,11 @@ javaProject.setRawClasspath(cp, monitor);
    */
   protected IProject preConfigureDependencyProject(IMavenProjectFacade dependencyMavenProjectFacade, IProgressMonitor monitor) throws CoreException {
     IProject dependency = dependencyMavenProjectFacade.getProject();
+    ConfigurationSession session = ConfigurationSession.getCurrent();
+    if(session != null && session.isPreConfigured(dependencyMavenProjectFacade)) {
+      //dependency has already been configured during this session
+      return dependency;
+    }
     MavenProject mavenDependency = dependencyMavenProjectFacade.getMavenProject(monitor);
     String depPackaging = dependencyMavenProjectFacade.getPackaging();
     //jee dependency has not been configured yet - i.e. it has no JEE facet-
@@ -212,10 +263,12 @@ javaProject.setRawClasspath(cp, monitor);
       // XXX Probably should create a UtilProjectConfiguratorDelegate
       configureWtpUtil(dependency, mavenDependency, monitor);
     }
+    if(session != null) {
+      session.setPreConfigured(dependencyMavenProjectFacade);
+    }
     return dependency;
   }
 
-  @SuppressWarnings("restriction")
   protected void configureDeployedName(IProject project, String deployedFileName) {
     //We need to remove the file extension from deployedFileName 
     int extSeparatorPos  = deployedFileName.lastIndexOf('.');
@@ -223,20 +276,13 @@ javaProject.setRawClasspath(cp, monitor);
     //From jerr's patch in MNGECLIPSE-965
     IVirtualComponent projectComponent = ComponentCore.createComponent(project);
     if(projectComponent != null && !deployedName.equals(projectComponent.getDeployedName())){//MNGECLIPSE-2331 : Seems projectComponent.getDeployedName() can be null 
-      StructureEdit moduleCore = null;
+      ComponentTransaction transaction = ComponentTransaction.begin(project);
       try {
-        moduleCore = StructureEdit.getStructureEditForWrite(project);
-        if (moduleCore != null){
-          WorkbenchComponent component = moduleCore.getComponent();
-          if (component != null) {
-            component.setName(deployedName);
-            moduleCore.saveIfNecessary(null);
-          }
+        if(transaction.setDeployedName(deployedName)) {
+          transaction.commit(null);
         }
       } finally {
-        if (moduleCore != null) {
-          moduleCore.dispose();
-        }
+        transaction.dispose();
       }
     }  
   }
@@ -264,6 +310,14 @@ javaProject.setRawClasspath(cp, monitor);
       }
   }
 
+  /**
+   * Compares references regardless of their order : the same set of references in a different order (i.e. the
+   * Maven dependencies were resolved in another order) doesn't need to be written again, which would trigger a full
+   * republish of the project.
+   * 
+   * @return true if existingRefs and refArray don't hold the same references (runtime path, referenced component,
+   *         dependency type and archive name, if it was set)
+   */
   protected boolean hasChanged(IVirtualReference[] existingRefs, IVirtualReference[] refArray) {
   
     if (existingRefs==refArray) {
@@ -272,16 +326,50 @@ javaProject.setRawClasspath(cp, monitor);
     if (existingRefs == null || existingRefs.length != refArray.length) {
       return true;
     }
-    for (int i=0; i<existingRefs.length;i++){
-      IVirtualReference existingRef = existingRefs[i];
-      IVirtualReference newRef = refArray[i];
-      if ((existingRef.getArchiveName() != null && !existingRef.getArchiveName().equals(newRef.getArchiveName())) ||
-          !existingRef.getReferencedComponent().equals(newRef.getReferencedComponent()) ||
-          !existingRef.getRuntimePath().equals(newRef.getRuntimePath())) 
-      {
-        return true;  
+    //References are usually in the same order
+    int start = 0;
+    while (start < refArray.length && isSameReference(existingRefs[start], refArray[start])) {
+      start++;
+    }
+    //Otherwise the remaining references must be a permutation of each other
+    for (int i = start; i < refArray.length; i++) {
+      for (int j = start; j < i; j++) {
+        if (hasSameKey(refArray[j], refArray[i]) || hasSameKey(existingRefs[j], existingRefs[i])) {
+          //Duplicate references, can't be compared regardless of their order
+          return true;
+        }
+      }
+    }
+    for (int i = start; i < existingRefs.length; i++) {
+      boolean found = false;
+      for (int j = start; j < refArray.length && !found; j++) {
+        found = isSameReference(existingRefs[i], refArray[j]);
+      }
+      if (!found) {
+        return true;
       }
     }
     return false;    
   }
+
+  /**
+   * @return true if both references have the same key and newRef has the archive name of existingRef, if it was set.
+   */
+  private static boolean isSameReference(IVirtualReference existingRef, IVirtualReference newRef) {
+    return hasSameKey(existingRef, newRef)
+        && (existingRef.getArchiveName() == null || existingRef.getArchiveName().equals(newRef.getArchiveName()));
+  }
+
+  /**
+   * A reference is identified by its runtime path, referenced component and dependency type.
+   */
+  private static boolean hasSameKey(IVirtualReference ref, IVirtualReference other) {
+    return ref.getDependencyType() == other.getDependencyType()
+        && isEqual(ref.getRuntimePath(), other.getRuntimePath())
+        && isEqual(ref.getReferencedComponent(), other.getReferencedComponent());
+  }
+
+  private static boolean isEqual(Object o1, Object o2) {
+    return o1 == null ? o2 == null : o1.equals(o2);
+  }
 }
@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2008 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.maven.ide.eclipse.wtp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Set;
+
+import org.codehaus.plexus.util.xml.PrettyPrintXMLWriter;
+import org.codehaus.plexus.util.xml.XMLWriter;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.maven.ide.eclipse.wtp.earmodules.EarModule;
+import org.maven.ide.eclipse.wtp.earmodules.EjbModule;
+import org.maven.ide.eclipse.wtp.earmodules.JarModule;
+import org.maven.ide.eclipse.wtp.earmodules.JbossEarModule;
+import org.maven.ide.eclipse.wtp.earmodules.RarModule;
+import org.maven.ide.eclipse.wtp.earmodules.SecurityRoleKey;
+import org.maven.ide.eclipse.wtp.earmodules.WebModule;
+import org.maven.ide.eclipse.wtp.internal.MavenWtpPlugin;
+
+
+/**
+ * Generates application.xml in-process, the same way ear:generate-application-xml does, from the modules and the
+ * security roles read in the maven-ear-plugin configuration.
+ * <p>
+ * JBoss specific configuration (jboss-app.xml, sar and har modules) and unknown Java EE versions are not supported :
+ * use {@link #isSupported(EarPluginConfiguration)} to check if the maven-ear-plugin needs to be executed instead.
+ * </p>
+ *
+ * @see http://maven.apache.org/plugins/maven-ear-plugin/generate-application-xml-mojo.html
+ * @author Fred Bricon
+ */
+class ApplicationXmlGenerator {
+
+  private static final String VERSION_1_3 = "1.3";
+
+  private static final String VERSION_1_4 = "1.4";
+
+  private static final String VERSION_5 = "5.0";
+
+  private static final String VERSION_6 = "6.0";
+
+  private static final String DOCTYPE_1_3 = "application PUBLIC\n"
+      + "\t\"-//Sun Microsystems, Inc.//DTD J2EE Application 1.3//EN\"\n"
+      + "\t\"http://java.sun.com/dtd/application_1_3.dtd\"";
+
+  private static final String XSI_NAMESPACE = "http://www.w3.org/2001/XMLSchema-instance";
+
+  private final EarPluginConfiguration config;
+
+  ApplicationXmlGenerator(EarPluginConfiguration config) {
+    this.config = config;
+  }
+
+  /**
+   * @return true if application.xml can be generated without executing the maven-ear-plugin.
+   */
+  static boolean isSupported(EarPluginConfiguration config) throws CoreException {
+    if(config.getConfigurationChild("jboss") != null || config.getConfigurationChild("envEntries") != null) {
+      return false;
+    }
+    String version = config.getEarFacetVersion().getVersionString();
+    if(!VERSION_1_3.equals(version) && !VERSION_1_4.equals(version) && !VERSION_5.equals(version)
+        && !VERSION_6.equals(version)) {
+      return false;
+    }
+    for(EarModule earModule : config.getEarModules()) {
+      if(earModule instanceof JbossEarModule) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Generates the content of application.xml, encoded as set in the maven-ear-plugin configuration.
+   */
+  byte[] generate() throws CoreException {
+    String encoding = config.getEncoding();
+    String version = config.getEarFacetVersion().getVersionString();
+    ByteArrayOutputStream out = new ByteArrayOutputStream(2048);
+    try {
+      Writer w = new OutputStreamWriter(out, encoding);
+      XMLWriter writer;
+      if(VERSION_1_3.equals(version)) {
+        writer = new PrettyPrintXMLWriter(w, encoding, DOCTYPE_1_3);
+      } else {
+        writer = new PrettyPrintXMLWriter(w, encoding, null);
+      }
+      writeApplication(writer, version);
+      w.close();
+    } catch(IOException ex) {
+      IStatus status = new Status(IStatus.ERROR, MavenWtpPlugin.ID, ex.getLocalizedMessage(), ex);
+      throw new CoreException(status);
+    }
+    return out.toByteArray();
+  }
+
+  private void writeApplication(XMLWriter writer, String version) throws CoreException {
+    writer.startElement("application");
+    if(VERSION_1_3.equals(version)) {
+      writeElement(writer, "display-name", config.getDisplayName());
+      writeElement(writer, "description", config.getDescription());
+    } else {
+      if(VERSION_1_4.equals(version)) {
+        writeSchemaAttributes(writer, "http://java.sun.com/xml/ns/j2ee", "application_1_4.xsd", "1.4");
+      } else if(VERSION_5.equals(version)) {
+        writeSchemaAttributes(writer, "http://java.sun.com/xml/ns/javaee", "application_5.xsd", "5");
+      } else {
+        writeSchemaAttributes(writer, "http://java.sun.com/xml/ns/javaee", "application_6.xsd", "6");
+        writeElement(writer, "application-name", config.getApplicationName());
+      }
+      writeElement(writer, "description", config.getDescription());
+      writeElement(writer, "display-name", config.getDisplayName());
+    }
+
+    for(EarModule earModule : config.getEarModules()) {
+      writeModule(writer, earModule);
+    }
+
+    Set<SecurityRoleKey> securityRoles = config.getSecurityRoleKeys();
+    for(SecurityRoleKey securityRole : securityRoles) {
+      writer.startElement("security-role");
+      if(securityRole.getId() != null) {
+        writer.addAttribute("id", securityRole.getId());
+      }
+      writeElement(writer, "description", securityRole.getDescription());
+      writeElement(writer, "role-name", securityRole.getRoleName());
+      writer.endElement();
+    }
+
+    if(VERSION_5.equals(version) || VERSION_6.equals(version)) {
+      writeElement(writer, "library-directory", config.getLibraryDirectory());
+    }
+    writer.endElement();
+  }
+
+  private static void writeSchemaAttributes(XMLWriter writer, String namespace, String schema, String version) {
+    writer.addAttribute("xmlns", namespace);
+    writer.addAttribute("xmlns:xsi", XSI_NAMESPACE);
+    writer.addAttribute("xsi:schemaLocation", namespace + " " + namespace + "/" + schema);
+    writer.addAttribute("version", version);
+  }
+
+  /**
+   * Writes a module the way the maven-ear-plugin does : java modules are only written when includeInApplicationXml is
+   * set (so ejb-client modules are never written).
+   */
+  private static void writeModule(XMLWriter writer, EarModule earModule) {
+    String uri = getUri(earModule);
+    if(earModule instanceof WebModule) {
+      writer.startElement("module");
+      writer.startElement("web");
+      writeElement(writer, "web-uri", uri);
+      writeElement(writer, "context-root", ((WebModule) earModule).getContextRoot());
+      writer.endElement();
+    } else if(earModule instanceof EjbModule) {
+      writer.startElement("module");
+      writeElement(writer, "ejb", uri);
+    } else if(earModule instanceof RarModule) {
+      writer.startElement("module");
+      writeElement(writer, "connector", uri);
+    } else if(earModule instanceof JarModule && ((JarModule) earModule).isIncludeInApplicationXml()) {
+      writer.startElement("module");
+      writeElement(writer, "java", uri);
+    } else {
+      return;
+    }
+    writeElement(writer, "alt-dd", earModule.getAltDeploymentDescriptor());
+    writer.endElement();
+  }
+
+  /**
+   * WTP needs the module uris to start with a '/', application.xml doesn't.
+   */
+  private static String getUri(EarModule earModule) {
+    String uri = earModule.getUri();
+    while(uri != null && uri.startsWith("/")) {
+      uri = uri.substring(1);
+    }
+    return uri;
+  }
+
+  private static void writeElement(XMLWriter writer, String name, String value) {
+    if(value != null) {
+      writer.startElement(name);
+      writer.writeText(value);
+      writer.endElement();
+    }
+  }
+}
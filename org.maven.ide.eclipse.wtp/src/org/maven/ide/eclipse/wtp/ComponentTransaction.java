@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2008 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.maven.ide.eclipse.wtp;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.wst.common.componentcore.internal.StructureEdit;
+import org.eclipse.wst.common.componentcore.internal.WorkbenchComponent;
+
+
+/**
+ * Groups the changes made to the .settings/org.eclipse.wst.common.component file of a project into a single write
+ * session, saved once.
+ * <p>
+ * The WTP APIs changing a component (IVirtualFolder.createLink/removeLink, IVirtualComponent.setReferences,
+ * J2EEProjectUtilities.setServerContextRoot...) each open their own StructureEdit and save it. But the underlying
+ * model is shared between all the StructureEdits of a project, and it's only saved when the last one saves. As long
+ * as a transaction is open, these calls only modify the shared model, which is then written by {@link #commit(IProgressMonitor)}.
+ * If the transaction is disposed without being committed, the pending changes are discarded along with the model.
+ * </p>
+ * Transactions can be nested, only the outermost one actually saves :
+ *
+ * <pre>
+ * ComponentTransaction transaction = ComponentTransaction.begin(project);
+ * try {
+ *   ...
+ *   transaction.commit(monitor);
+ * } finally {
+ *   transaction.dispose();
+ * }
+ * </pre>
+ *
+ * @author Fred Bricon
+ */
+@SuppressWarnings("restriction")
+class ComponentTransaction {
+
+  private StructureEdit structureEdit;
+
+  private ComponentTransaction(StructureEdit structureEdit) {
+    this.structureEdit = structureEdit;
+  }
+
+  /**
+   * Opens a write session on the component of a project. If the project is not a WTP module (yet), the transaction
+   * does nothing.
+   */
+  static ComponentTransaction begin(IProject project) {
+    StructureEdit structureEdit = null;
+    if(project.isAccessible() && WTPProjectConfigurator.isWTPProject(project)) {
+      structureEdit = StructureEdit.getStructureEditForWrite(project);
+    }
+    return new ComponentTransaction(structureEdit);
+  }
+
+  /**
+   * @return the component being edited, or null.
+   */
+  WorkbenchComponent getComponent() {
+    return structureEdit == null ? null : structureEdit.getComponent();
+  }
+
+  /**
+   * Changes the deployed name of the component.
+   *
+   * @return true if the name has changed.
+   */
+  boolean setDeployedName(String deployedName) {
+    WorkbenchComponent component = getComponent();
+    if(component == null || deployedName.equals(component.getName())) {
+      return false;
+    }
+    component.setName(deployedName);
+    return true;
+  }
+
+  /**
+   * Saves the pending changes, if this is the outermost transaction of the project.
+   */
+  void commit(IProgressMonitor monitor) {
+    if(structureEdit != null) {
+      structureEdit.saveIfNecessary(monitor);
+    }
+  }
+
+  /**
+   * Ends the transaction. Must always be called, typically in a finally block.
+   */
+  void dispose() {
+    if(structureEdit != null) {
+      structureEdit.dispose();
+      structureEdit = null;
+    }
+  }
+}
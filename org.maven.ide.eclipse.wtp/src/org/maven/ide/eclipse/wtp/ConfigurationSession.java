@@ -0,0 +1,418 @@
+/*******************************************************************************
+ * Copyright (c) 2008 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.maven.ide.eclipse.wtp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.project.MavenProject;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.maven.ide.eclipse.MavenPlugin;
+import org.maven.ide.eclipse.core.MavenLogger;
+import org.maven.ide.eclipse.project.IMavenProjectFacade;
+import org.maven.ide.eclipse.project.MavenProjectManager;
+
+
+/**
+ * Groups the WTP configuration of several projects, e.g. the projects of an import or of an update of project
+ * configurations.
+ * <p>
+ * Within a session, the workspace dependencies of each project are computed only once and dependency projects are
+ * pre-configured only once, as long as their pom.xml doesn't change. Module dependencies (i.e. the .component
+ * references) are not written while projects are being configured : they're set once, in dependency order, when the
+ * session ends.
+ * </p>
+ * <p>
+ * All the projects configured by the same job (project import, update project configuration...) share a session, which
+ * ends once the job is done : the module dependencies are then set by a job of the {@link #JOB_FAMILY} family. A
+ * caller can also scope a session explicitly, around the configurations it runs in the current thread :
+ * </p>
+ *
+ * <pre>
+ * ConfigurationSession session = ConfigurationSession.begin();
+ * try {
+ *   ...
+ * } finally {
+ *   session.end(monitor);
+ * }
+ * </pre>
+ *
+ * Sessions can be nested : {@link #begin()} joins the session already open in the current thread, if any.
+ *
+ * @author Fred Bricon
+ */
+public class ConfigurationSession {
+
+  /**
+   * Family of the jobs setting the module dependencies of the sessions bound to a job.
+   */
+  public static final String JOB_FAMILY = "org.maven.ide.eclipse.wtp.moduleDependencies";
+
+  private static final ThreadLocal<ConfigurationSession> current = new ThreadLocal<ConfigurationSession>();
+
+  /**
+   * The sessions shared by all the configurations of a job.
+   */
+  private static final Map<Job, ConfigurationSession> jobSessions = new HashMap<Job, ConfigurationSession>();
+
+  /**
+   * The sessions open in all threads and jobs.
+   */
+  private static final Set<ConfigurationSession> sessions = new HashSet<ConfigurationSession>();
+
+  private int depth;
+
+  /**
+   * true while the module dependencies are being set
+   */
+  private boolean ending;
+
+  private final Map<IProject, MavenProject> pendingModuleDependencies = new LinkedHashMap<IProject, MavenProject>();
+
+  private final List<IProject> updatedProjects = new ArrayList<IProject>();
+
+  private final Map<IProject, List<IMavenProjectFacade>> workspaceDependencies = new HashMap<IProject, List<IMavenProjectFacade>>();
+
+  /**
+   * pom.xml modification stamps of the projects already configured or pre-configured during this session.
+   */
+  private final Map<IProject, Long> preConfiguredDependencies = new HashMap<IProject, Long>();
+
+  private final AtomicInteger preConfigurationHits = new AtomicInteger();
+
+  private final AtomicInteger preConfigurationMisses = new AtomicInteger();
+
+  private ConfigurationSession() {
+  }
+
+  /**
+   * Opens a session in the current thread, or joins the one already open. Every call must be followed by a call to
+   * {@link #end(IProgressMonitor)}.
+   */
+  public static ConfigurationSession begin() {
+    ConfigurationSession session = current.get();
+    if(session == null) {
+      session = open();
+      current.set(session);
+    }
+    session.depth++ ;
+    return session;
+  }
+
+  /**
+   * Joins the session open in the current thread or, in a job, the session of this job, which is opened on the first
+   * call. Outside of a job, opens a session in the current thread. Every call must be followed by a call to
+   * {@link #end(IProgressMonitor)}.
+   */
+  static ConfigurationSession join() {
+    if(current.get() == null) {
+      Job job = Job.getJobManager().currentJob();
+      if(job != null) {
+        ConfigurationSession session = getJobSession(job, true);
+        session.depth++ ;
+        return session;
+      }
+    }
+    return begin();
+  }
+
+  private static ConfigurationSession open() {
+    ConfigurationSession session = new ConfigurationSession();
+    synchronized(sessions) {
+      sessions.add(session);
+    }
+    return session;
+  }
+
+  private static ConfigurationSession getJobSession(Job job, boolean create) {
+    synchronized(jobSessions) {
+      ConfigurationSession session = jobSessions.get(job);
+      if(session == null && create) {
+        session = open();
+        //Released once the job is done
+        session.depth = 1;
+        jobSessions.put(job, session);
+        new ModuleDependenciesJob(job, session).schedule();
+      }
+      return session;
+    }
+  }
+
+  /**
+   * @return the session open in the current thread or job, or null.
+   */
+  public static ConfigurationSession getCurrent() {
+    ConfigurationSession session = current.get();
+    if(session == null) {
+      Job job = Job.getJobManager().currentJob();
+      if(job != null) {
+        session = getJobSession(job, false);
+      }
+    }
+    return session;
+  }
+
+  /**
+   * Leaves the session. When the outermost session ends, the deferred module dependencies are set.
+   *
+   * @throws CoreException the first error raised while setting module dependencies. The module dependencies of the
+   *           other projects are still set.
+   */
+  public void end(IProgressMonitor monitor) throws CoreException {
+    if(--depth > 0 || ending) {
+      return;
+    }
+    ending = true;
+    //Still the current session while module dependencies are set
+    current.set(this);
+    try {
+      setModuleDependencies(monitor);
+    } finally {
+      current.remove();
+      synchronized(sessions) {
+        sessions.remove(this);
+      }
+    }
+  }
+
+  private void setModuleDependencies(IProgressMonitor monitor) throws CoreException {
+    MavenProjectManager projectManager = MavenPlugin.getDefault().getMavenProjectManager();
+    CoreException error = null;
+    //Setting module dependencies may configure other projects
+    while(!pendingModuleDependencies.isEmpty()) {
+      List<IProject> projects = getPendingProjectsInDependencyOrder();
+      pendingModuleDependencies.clear();
+      monitor.beginTask("Updating WTP module dependencies", projects.size());
+      for(IProject project : projects) {
+        if(monitor.isCanceled()) {
+          //The fingerprints of the remaining projects are left as is : they'll be updated on their next change
+          throw new OperationCanceledException();
+        }
+        monitor.subTask(project.getName());
+        //The pom.xml may have changed since the project was configured
+        IMavenProjectFacade facade = project.isAccessible() ? projectManager.getProject(project) : null;
+        if(facade == null) {
+          continue;
+        }
+        try {
+          MavenProject mavenProject = facade.getMavenProject(monitor);
+          IProjectConfiguratorDelegate configuratorDelegate = ProjectConfiguratorDelegateFactory
+              .getProjectConfiguratorDelegate(mavenProject.getPackaging());
+          if(configuratorDelegate == null) {
+            continue;
+          }
+          configuratorDelegate.setModuleDependencies(project, mavenProject, monitor);
+          ModuleDependenciesFingerprint.update(project, mavenProject, monitor);
+          updatedProjects.add(project);
+        } catch(CoreException ex) {
+          if(error == null) {
+            error = ex;
+          } else {
+            MavenLogger.log(ex);
+          }
+        } finally {
+          monitor.worked(1);
+        }
+      }
+      monitor.done();
+    }
+    if(error != null) {
+      throw error;
+    }
+  }
+
+  /**
+   * @return the projects whose module dependencies were set when the session ended, in the order they were set.
+   */
+  public List<IProject> getUpdatedProjects() {
+    return Collections.unmodifiableList(new ArrayList<IProject>(updatedProjects));
+  }
+
+  /**
+   * Forgets everything known about a project in the open sessions, typically because its pom.xml has changed.
+   */
+  static void invalidate(IProject project) {
+    synchronized(sessions) {
+      for(ConfigurationSession session : sessions) {
+        synchronized(session.preConfiguredDependencies) {
+          session.preConfiguredDependencies.remove(project);
+        }
+        synchronized(session.workspaceDependencies) {
+          session.workspaceDependencies.remove(project);
+        }
+      }
+    }
+  }
+
+  /**
+   * Marks a project as configured during this session : it won't be pre-configured again as a dependency, as long as
+   * its pom.xml doesn't change.
+   */
+  void markConfigured(IProject project, IFile pom) {
+    synchronized(preConfiguredDependencies) {
+      preConfiguredDependencies.put(project, Long.valueOf(pom.getModificationStamp()));
+    }
+  }
+
+  /**
+   * Checks if a dependency project has already been configured or pre-configured during this session, with the same
+   * pom.xml.
+   */
+  boolean isPreConfigured(IMavenProjectFacade dependency) {
+    Long stamp;
+    synchronized(preConfiguredDependencies) {
+      stamp = preConfiguredDependencies.get(dependency.getProject());
+    }
+    if(stamp != null && stamp.longValue() == dependency.getPom().getModificationStamp()) {
+      preConfigurationHits.incrementAndGet();
+      return true;
+    }
+    preConfigurationMisses.incrementAndGet();
+    return false;
+  }
+
+  void setPreConfigured(IMavenProjectFacade dependency) {
+    markConfigured(dependency.getProject(), dependency.getPom());
+  }
+
+  /**
+   * @return the number of times a dependency project was not pre-configured again, as it already had been during this
+   *         session.
+   */
+  public int getPreConfigurationHits() {
+    return preConfigurationHits.get();
+  }
+
+  /**
+   * @return the number of dependency projects pre-configured during this session.
+   */
+  public int getPreConfigurationMisses() {
+    return preConfigurationMisses.get();
+  }
+
+  /**
+   * Postpones the module dependencies configuration of a project till the end of the session.
+   */
+  void deferModuleDependencies(IProject project, MavenProject mavenProject) {
+    pendingModuleDependencies.put(project, mavenProject);
+  }
+
+  /**
+   * Returns the workspace dependencies of a project, computed once per session.
+   */
+  List<IMavenProjectFacade> getWorkspaceDependencies(IProject project, MavenProject mavenProject) {
+    List<IMavenProjectFacade> dependencies;
+    synchronized(workspaceDependencies) {
+      dependencies = workspaceDependencies.get(project);
+    }
+    if(dependencies == null) {
+      MavenProjectManager projectManager = MavenPlugin.getDefault().getMavenProjectManager();
+      dependencies = Collections.unmodifiableList(AbstractProjectConfiguratorDelegate.collectWorkspaceDependencies(
+          projectManager, project, mavenProject));
+      synchronized(workspaceDependencies) {
+        workspaceDependencies.put(project, dependencies);
+      }
+    }
+    return dependencies;
+  }
+
+  /**
+   * Sorts the projects waiting for their module dependencies so that dependencies come before their dependents. The
+   * dependency graph is also walked through the workspace projects which are not waiting, so that an ear is still set
+   * after a war it depends on through another project.
+   */
+  private List<IProject> getPendingProjectsInDependencyOrder() {
+    List<IProject> orderedProjects = new ArrayList<IProject>(pendingModuleDependencies.size());
+    Set<IProject> visited = new HashSet<IProject>();
+    for(Map.Entry<IProject, MavenProject> entry : pendingModuleDependencies.entrySet()) {
+      visit(entry.getKey(), entry.getValue(), visited, orderedProjects);
+    }
+    return orderedProjects;
+  }
+
+  private void visit(IProject project, MavenProject mavenProject, Set<IProject> visited, List<IProject> orderedProjects) {
+    if(!visited.add(project)) {
+      return;
+    }
+    for(IMavenProjectFacade dependency : getWorkspaceDependencies(project, mavenProject)) {
+      MavenProject depMavenProject = pendingModuleDependencies.get(dependency.getProject());
+      if(depMavenProject == null) {
+        //Only the cached maven project : loading every dependency isn't worth it, just to sort the projects
+        depMavenProject = dependency.getMavenProject();
+      }
+      if(depMavenProject != null) {
+        visit(dependency.getProject(), depMavenProject, visited, orderedProjects);
+      }
+    }
+    if(pendingModuleDependencies.containsKey(project)) {
+      orderedProjects.add(project);
+    }
+  }
+
+  /**
+   * Ends the session of a job, once this job is done.
+   */
+  private static class ModuleDependenciesJob extends Job {
+
+    private final Job job;
+
+    private final ConfigurationSession session;
+
+    ModuleDependenciesJob(Job job, ConfigurationSession session) {
+      super("Updating WTP module dependencies");
+      this.job = job;
+      this.session = session;
+    }
+
+    public boolean belongsTo(Object family) {
+      return JOB_FAMILY.equals(family);
+    }
+
+    protected IStatus run(IProgressMonitor monitor) {
+      //No scheduling rule while waiting, the job may need any
+      try {
+        job.join();
+      } catch(InterruptedException ex) {
+        return Status.CANCEL_STATUS;
+      } finally {
+        synchronized(jobSessions) {
+          jobSessions.remove(job);
+        }
+      }
+      IWorkspace workspace = ResourcesPlugin.getWorkspace();
+      try {
+        workspace.run(new IWorkspaceRunnable() {
+          public void run(IProgressMonitor monitor) throws CoreException {
+            session.end(monitor);
+          }
+        }, workspace.getRoot(), IWorkspace.AVOID_UPDATE, monitor);
+      } catch(CoreException ex) {
+        MavenLogger.log(ex);
+      }
+      return Status.OK_STATUS;
+    }
+  }
+}
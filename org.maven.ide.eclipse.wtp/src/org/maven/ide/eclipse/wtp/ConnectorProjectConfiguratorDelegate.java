@@ -8,7 +8,6 @@
 
 package org.maven.ide.eclipse.wtp;
 
-import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -29,10 +28,8 @@ import org.eclipse.wst.common.componentcore.resources.IVirtualReference;
 import org.eclipse.wst.common.frameworks.datamodel.DataModelFactory;
 import org.eclipse.wst.common.frameworks.datamodel.IDataModel;
 import org.eclipse.wst.common.project.facet.core.IFacetedProject;
-import org.eclipse.wst.common.project.facet.core.IFacetedProject.Action;
 import org.eclipse.wst.common.project.facet.core.IProjectFacetVersion;
 import org.eclipse.wst.common.project.facet.core.ProjectFacetsManager;
-import org.maven.ide.eclipse.core.MavenLogger;
 import org.maven.ide.eclipse.jdt.IClasspathDescriptor;
 import org.maven.ide.eclipse.project.IMavenProjectFacade;
 import org.maven.ide.eclipse.project.MavenProjectUtils;
@@ -53,46 +50,47 @@ public class ConnectorProjectConfiguratorDelegate extends AbstractProjectConfigu
   protected void configure(IProject project, MavenProject mavenProject, IProgressMonitor monitor) throws CoreException {
     IFacetedProject facetedProject = ProjectFacetsManager.create(project, true, monitor);
 
-    if(facetedProject.hasProjectFacet(WTPProjectsUtil.JCA_FACET)) {
-      try {
-        facetedProject.modify(Collections.singleton(new IFacetedProject.Action(IFacetedProject.Action.Type.UNINSTALL,
-            facetedProject.getInstalledVersion(WTPProjectsUtil.JCA_FACET), null)), monitor);
-      } catch(Exception ex) {
-        MavenLogger.log("Error removing JCA facet", ex);
-      }
-    }
-    
-    Set<Action> actions = new LinkedHashSet<Action>();
-    installJavaFacet(actions, project, facetedProject);
-
     RarPluginConfiguration config = new RarPluginConfiguration(mavenProject);
+    IProjectFacetVersion connectorFv = config.getConnectorFacetVersion(project);
+
+    FacetPlan plan = new FacetPlan(facetedProject);
+    requireJavaFacet(plan, project);
+
     // WTP doesn't allow facet versions changes for JEE facets 
-    if(!facetedProject.hasProjectFacet(WTPProjectsUtil.JCA_FACET)) {
+    String contentDir = config.getRarContentDirectory(project);
+    boolean installConnectorFacet = plan.require(connectorFv, false);
+    if(installConnectorFacet) {
       // Configuring content directory, used by WTP to create META-INF/manifest.mf, ra.xml
-      String contentDir = config.getRarContentDirectory(project);
-      
       IDataModel rarModelCfg = DataModelFactory.createDataModel(new ConnectorFacetInstallDataModelProvider());
       rarModelCfg.setProperty(IConnectorFacetInstallDataModelProperties.CONFIG_FOLDER, contentDir);
       //Don't generate ra.xml by default - Setting will be ignored for JCA 1.6
       rarModelCfg.setProperty(IConnectorFacetInstallDataModelProperties.GENERATE_DD, false);
 
-      IProjectFacetVersion connectorFv = config.getConnectorFacetVersion(project);
-      
-      actions.add(new IFacetedProject.Action(IFacetedProject.Action.Type.INSTALL, connectorFv, rarModelCfg));
+      plan.setConfig(WTPProjectsUtil.JCA_FACET, rarModelCfg);
     }
 
-    if(!actions.isEmpty()) {
-      facetedProject.modify(actions, monitor);
-    }
+    plan.apply(monitor);
+
+    //All the component changes below are saved at once
+    ComponentTransaction transaction = ComponentTransaction.begin(project);
+    try {
+      if (!installConnectorFacet) {
+        //rarSourceDirectory may have changed
+        linkContentDirectory(project, mavenProject, contentDir, monitor);
+      }
 
-    if (!config.isJarIncluded()) {
-      //project classes won't be jar'ed in the resulting rar.
-      removeSourceLinks(project, mavenProject, monitor, "/");
+      if (!config.isJarIncluded()) {
+        //project classes won't be jar'ed in the resulting rar.
+        removeSourceLinks(project, mavenProject, monitor, "/");
+      }
+      removeTestFolderLinks(project, mavenProject, monitor, "/"); 
+      
+      String customRaXml = config.getCustomRaXml(project);
+      linkFile(project, customRaXml, "META-INF/ra.xml", monitor);
+      transaction.commit(monitor);
+    } finally {
+      transaction.dispose();
     }
-    removeTestFolderLinks(project, mavenProject, monitor, "/"); 
-    
-    String customRaXml = config.getCustomRaXml(project);
-    linkFile(project, customRaXml, "META-INF/ra.xml", monitor);
     
     //Remove "library unavailable at runtime" warning. TODO is it relevant for connector projects?
     setNonDependencyAttributeToContainer(project, monitor);
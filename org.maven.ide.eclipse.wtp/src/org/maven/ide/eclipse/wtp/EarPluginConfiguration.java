@@ -9,9 +9,11 @@
 package org.maven.ide.eclipse.wtp;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.maven.artifact.Artifact;
@@ -51,6 +53,11 @@ class EarPluginConfiguration {
   // Default EAR version produced by the maven-ear-plugin
   private static final IProjectFacetVersion DEFAULT_EAR_FACET = IJ2EEFacetConstants.ENTERPRISE_APPLICATION_13;
 
+  /**
+   * Configurations already read, per project. See {@link #get(IProject, MavenProject)}
+   */
+  private static final Map<IProject, EarPluginConfiguration> cache = new HashMap<IProject, EarPluginConfiguration>();
+
   private final MavenProject mavenProject;
 
   private final Plugin plugin;
@@ -62,7 +69,6 @@ class EarPluginConfiguration {
 
   // private String contentDirectory;
 
-  // XXX see if Lazy loading / caching the different factories and services is relevant.
   private ArtifactTypeMappingService typeMappingService;
 
   private Set<EarModule>  earModules;
@@ -76,6 +82,31 @@ class EarPluginConfiguration {
     this.plugin = mavenProject.getPlugin("org.apache.maven.plugins:maven-ear-plugin");
   }
 
+  /**
+   * Returns the configuration of an ear project, sharing the modules and services already read by the previous
+   * configuration steps. The cached configuration is reused as long as the Maven project isn't reloaded, and is
+   * evicted as soon as it changes, see {@link #remove(IProject)}.
+   */
+  static EarPluginConfiguration get(IProject project, MavenProject mavenProject) {
+    synchronized(cache) {
+      EarPluginConfiguration config = cache.get(project);
+      if(config == null || config.mavenProject != mavenProject) {
+        config = new EarPluginConfiguration(mavenProject);
+        cache.put(project, config);
+      }
+      return config;
+    }
+  }
+
+  /**
+   * Forgets the configuration of a project, when its pom.xml or its dependencies change, or when it's removed.
+   */
+  static void remove(IProject project) {
+    synchronized(cache) {
+      cache.remove(project);
+    }
+  }
+
   /**
    * @return ear plugin configuration or null.
    */
@@ -176,7 +207,7 @@ class EarPluginConfiguration {
    * @see org.apache.maven.plugin.ear.AbstractEarMojo
    * @return an unmodifiable set of EarModule
    */
-  public Set<EarModule> getEarModules() throws EarPluginException {
+  public synchronized Set<EarModule> getEarModules() throws EarPluginException {
     if (earModules == null) {
       //Lazy load modules
       earModules = collectEarModules();
@@ -199,6 +230,11 @@ class EarPluginConfiguration {
     //Resolve Ear modules from plugin config
     earModules.addAll(getEarModulesFromConfig(earModuleFactory, defaultBundleDir, javaEEVersion)); 
 
+    Set<Artifact> registeredArtifacts = new HashSet<Artifact>(artifacts.size());
+    for(EarModule earModule : earModules) {
+      registeredArtifacts.add(earModule.getArtifact());
+    }
+
     ScopeArtifactFilter filter = new ScopeArtifactFilter(Artifact.SCOPE_RUNTIME);
 
     //next, add remaining modules from maven project dependencies
@@ -212,10 +248,11 @@ class EarPluginConfiguration {
 
       // Artifact is not yet registered and it has neither test, nor a
       // provided scope, nor is it optional
-      if(!isArtifactRegistered(artifact, earModules) && filter.include(artifact) && !artifact.isOptional()) {
+      if(!registeredArtifacts.contains(artifact) && filter.include(artifact) && !artifact.isOptional()) {
         EarModule module = earModuleFactory.newEarModule(artifact, defaultBundleDir, javaEEVersion);
         if(module != null) {
           earModules.add(module);
+          registeredArtifacts.add(artifact);
         }
       }
     }
@@ -293,15 +330,6 @@ class EarPluginConfiguration {
     return earModules;
   }
 
-  private static boolean isArtifactRegistered(Artifact a, Set<EarModule> modules) {
-    for(EarModule module : modules) {
-      if(module.getArtifact().equals(a)) {
-        return true;
-      }
-    }
-    return false;
-  }
-
   public boolean isGenerateApplicationXml()  {
     Xpp3Dom configuration = getConfiguration();
     if(configuration == null) {
@@ -311,8 +339,54 @@ class EarPluginConfiguration {
     return (generateApplicationXmlNode == null) || Boolean.parseBoolean(generateApplicationXmlNode.getValue());
   }
   
+  /**
+   * @return the application display name, defaults to the project's artifactId.
+   */
+  public String getDisplayName() {
+    String displayName = DomUtils.getChildValue(getConfiguration(), "displayName");
+    return displayName == null ? mavenProject.getArtifactId() : displayName;
+  }
+
+  /**
+   * @return the application description or null.
+   */
+  public String getDescription() {
+    return DomUtils.getChildValue(getConfiguration(), "description");
+  }
+
+  /**
+   * @return the encoding of the generated deployment descriptors, defaults to UTF-8.
+   */
+  public String getEncoding() {
+    String encoding = DomUtils.getChildValue(getConfiguration(), "encoding");
+    return encoding == null ? "UTF-8" : encoding;
+  }
+
+  /**
+   * @return the application-name of Java EE 6 applications or null.
+   */
+  public String getApplicationName() {
+    return DomUtils.getChildValue(getConfiguration(), "applicationName");
+  }
+
+  /**
+   * @return the library-directory of Java EE 5+ applications or null.
+   */
+  public String getLibraryDirectory() {
+    return DomUtils.getChildValue(getConfiguration(), "libraryDirectory");
+  }
+
+  /**
+   * @return the child of the plugin configuration having the given name, or null.
+   */
+  Xpp3Dom getConfigurationChild(String name) {
+    Xpp3Dom configuration = getConfiguration();
+    return configuration == null ? null : configuration.getChild(name);
+  }
+
   public Set<SecurityRoleKey>  getSecurityRoleKeys() {
-    Set<SecurityRoleKey> securityRoles = new HashSet<SecurityRoleKey>();
+    //Keep the declaration order, so generated descriptors are stable
+    Set<SecurityRoleKey> securityRoles = new LinkedHashSet<SecurityRoleKey>();
     Xpp3Dom configuration = getConfiguration();
     if(configuration == null) {
       return securityRoles;
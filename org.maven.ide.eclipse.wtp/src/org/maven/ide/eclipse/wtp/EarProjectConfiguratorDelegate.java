@@ -10,7 +10,6 @@ package org.maven.ide.eclipse.wtp;
 
 
 
-import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -36,10 +35,8 @@ import org.eclipse.wst.common.frameworks.datamodel.DataModelFactory;
 import org.eclipse.wst.common.frameworks.datamodel.IDataModel;
 import org.eclipse.wst.common.frameworks.datamodel.IDataModelProvider;
 import org.eclipse.wst.common.project.facet.core.IFacetedProject;
-import org.eclipse.wst.common.project.facet.core.IFacetedProject.Action;
 import org.eclipse.wst.common.project.facet.core.IProjectFacetVersion;
 import org.eclipse.wst.common.project.facet.core.ProjectFacetsManager;
-import org.maven.ide.eclipse.core.MavenLogger;
 import org.maven.ide.eclipse.jdt.IClasspathDescriptor;
 import org.maven.ide.eclipse.project.IMavenProjectFacade;
 import org.maven.ide.eclipse.wtp.earmodules.EarModule;
@@ -60,33 +57,27 @@ class EarProjectConfiguratorDelegate extends AbstractProjectConfiguratorDelegate
       throws CoreException {
     IFacetedProject facetedProject = ProjectFacetsManager.create(project, true, monitor);
 
-    if(facetedProject.hasProjectFacet(WTPProjectsUtil.EAR_FACET)) {
-      try {
-        facetedProject.modify(Collections.singleton(new IFacetedProject.Action(IFacetedProject.Action.Type.UNINSTALL,
-            facetedProject.getInstalledVersion(WTPProjectsUtil.EAR_FACET), null)), monitor);
-      } catch(Exception ex) {
-        MavenLogger.log("Error removing EAR facet", ex);
-      }
-    }
-
-    EarPluginConfiguration config = new EarPluginConfiguration(mavenProject);
-    Set<Action> actions = new LinkedHashSet<Action>();
-    // WTP doesn't allow facet versions changes for JEE facets
+    EarPluginConfiguration config = EarPluginConfiguration.get(project, mavenProject);
+    IProjectFacetVersion earFv = config.getEarFacetVersion();
     String contentDir = config.getEarContentDirectory(project);
     
-    if(!facetedProject.hasProjectFacet(WTPProjectsUtil.EAR_FACET)) {
+    FacetPlan plan = new FacetPlan(facetedProject);
+    // WTP doesn't allow facet versions changes for JEE facets
+    boolean installEarFacet = plan.require(earFv, false);
+    if(installEarFacet) {
       IDataModel earModelCfg = DataModelFactory.createDataModel(new EarFacetInstallDataModelProvider());
 
       // Configuring content directory
       earModelCfg.setProperty(IEarFacetInstallDataModelProperties.CONTENT_DIR, contentDir);
 
-      IProjectFacetVersion earFv = config.getEarFacetVersion();
-      
-      actions.add(new IFacetedProject.Action(IFacetedProject.Action.Type.INSTALL, earFv, earModelCfg));
+      plan.setConfig(WTPProjectsUtil.EAR_FACET, earModelCfg);
     }
 
-    if(!actions.isEmpty()) {
-      facetedProject.modify(actions, monitor);
+    plan.apply(monitor);
+
+    if(!installEarFacet) {
+      //earSourceDirectory may have changed
+      linkContentDirectory(project, mavenProject, contentDir, monitor);
     }
 
     // FIXME Sometimes, test folders are still added to org.eclipse.wst.common.component
@@ -104,7 +95,7 @@ class EarProjectConfiguratorDelegate extends AbstractProjectConfiguratorDelegate
     
     Set<IVirtualReference> newRefs = new LinkedHashSet<IVirtualReference>();
     
-    EarPluginConfiguration config = new EarPluginConfiguration(mavenProject);
+    EarPluginConfiguration config = EarPluginConfiguration.get(project, mavenProject);
     // Retrieving all ear module configuration from maven-ear-plugin : User defined modules + artifacts dependencies.
     Set<EarModule> earModules = config.getEarModules();
 
@@ -146,6 +137,7 @@ class EarProjectConfiguratorDelegate extends AbstractProjectConfiguratorDelegate
       earComponent.setReferences(newRefsArray);
     }
 
+    //Generated from the saved references, outside of any component write session
     DeploymentDescriptorManagement.INSTANCE.updateConfiguration(project, mavenProject, config, monitor);
   }
 
@@ -8,10 +8,6 @@
 
 package org.maven.ide.eclipse.wtp;
 
-import java.util.Collections;
-import java.util.LinkedHashSet;
-import java.util.Set;
-
 import org.apache.maven.project.MavenProject;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
@@ -21,10 +17,8 @@ import org.eclipse.jst.j2ee.internal.ejb.project.operations.EjbFacetInstallDataM
 import org.eclipse.wst.common.frameworks.datamodel.DataModelFactory;
 import org.eclipse.wst.common.frameworks.datamodel.IDataModel;
 import org.eclipse.wst.common.project.facet.core.IFacetedProject;
-import org.eclipse.wst.common.project.facet.core.IFacetedProject.Action;
 import org.eclipse.wst.common.project.facet.core.IProjectFacetVersion;
 import org.eclipse.wst.common.project.facet.core.ProjectFacetsManager;
-import org.maven.ide.eclipse.core.MavenLogger;
 import org.maven.ide.eclipse.jdt.IClasspathDescriptor;
 
 
@@ -40,34 +34,28 @@ class EjbProjectConfiguratorDelegate extends AbstractProjectConfiguratorDelegate
       throws CoreException {
     IFacetedProject facetedProject = ProjectFacetsManager.create(project, true, monitor);
 
-    if(facetedProject.hasProjectFacet(WTPProjectsUtil.EJB_FACET)) {
-      try {
-        facetedProject.modify(Collections.singleton(new IFacetedProject.Action(IFacetedProject.Action.Type.UNINSTALL,
-            facetedProject.getInstalledVersion(WTPProjectsUtil.EJB_FACET), null)), monitor);
-      } catch(Exception ex) {
-        MavenLogger.log("Error removing EJB facet", ex);
-      }
-    }
+    EjbPluginConfiguration config = new EjbPluginConfiguration(mavenProject);
+    IProjectFacetVersion ejbFv = config.getEjbFacetVersion();
 
-    Set<Action> actions = new LinkedHashSet<Action>();
-    installJavaFacet(actions, project, facetedProject);
+    FacetPlan plan = new FacetPlan(facetedProject);
+    requireJavaFacet(plan, project);
 
     // WTP doesn't allow facet versions changes for JEE facets 
-    if(!facetedProject.hasProjectFacet(WTPProjectsUtil.EJB_FACET)) {
+    String contentDir = config.getEjbContentDirectory(project);
+    boolean installEjbFacet = plan.require(ejbFv, false);
+    if(installEjbFacet) {
       // Configuring content directory, used by WTP to create META-INF/manifest.mf, ejb-jar.xml
-      EjbPluginConfiguration config = new EjbPluginConfiguration(mavenProject);
-      String contentDir = config.getEjbContentDirectory(project);
-      
       IDataModel ejbModelCfg = DataModelFactory.createDataModel(new EjbFacetInstallDataModelProvider());
       ejbModelCfg.setProperty(IEjbFacetInstallDataModelProperties.CONFIG_FOLDER, contentDir);
 
-      IProjectFacetVersion ejbFv = config.getEjbFacetVersion();
-      
-      actions.add(new IFacetedProject.Action(IFacetedProject.Action.Type.INSTALL, ejbFv, ejbModelCfg));
+      plan.setConfig(WTPProjectsUtil.EJB_FACET, ejbModelCfg);
     }
 
-    if(!actions.isEmpty()) {
-      facetedProject.modify(actions, monitor);
+    plan.apply(monitor);
+
+    if(!installEjbFacet) {
+      //The first resource directory may have changed
+      linkContentDirectory(project, mavenProject, contentDir, monitor);
     }
 
     removeTestFolderLinks(project, mavenProject, monitor, "/"); //XXX Doesn't work in certain -unidentified yet- circumstances!!!
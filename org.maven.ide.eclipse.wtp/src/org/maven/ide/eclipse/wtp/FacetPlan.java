@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2008 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.maven.ide.eclipse.wtp;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.wst.common.project.facet.core.IFacetedProject;
+import org.eclipse.wst.common.project.facet.core.IFacetedProject.Action;
+import org.eclipse.wst.common.project.facet.core.IProjectFacet;
+import org.eclipse.wst.common.project.facet.core.IProjectFacetVersion;
+import org.maven.ide.eclipse.core.MavenLogger;
+
+
+/**
+ * The facets a project is expected to have. Configurators describe the facet versions they want, then
+ * {@link #apply(IProgressMonitor)} computes the minimal list of actions to get there from the installed facets, and
+ * applies it in a single {@link IFacetedProject#modify(Set, IProgressMonitor)} call :
+ * <ul>
+ * <li>missing facets are installed</li>
+ * <li>facets already installed in the expected version are left untouched</li>
+ * <li>facets installed in another version get a version change, or are uninstalled then installed again if version
+ * changes are not allowed (JEE facets)</li>
+ * </ul>
+ * WTP doesn't accept several actions on the same facet in a single modify call, so uninstalls are applied in a first,
+ * separate call. This only happens when the version of a JEE facet actually changes.
+ *
+ * <pre>
+ * FacetPlan plan = new FacetPlan(facetedProject);
+ * plan.require(javaFv, true);
+ * if(plan.require(ejbFv, false)) {
+ *   plan.setConfig(ejbFv.getProjectFacet(), ejbModelCfg);
+ * }
+ * plan.apply(monitor);
+ * </pre>
+ *
+ * @author Fred Bricon
+ */
+class FacetPlan {
+
+  private final IFacetedProject facetedProject;
+
+  private final Map<IProjectFacet, Required> requiredFacets = new LinkedHashMap<IProjectFacet, Required>();
+
+  FacetPlan(IFacetedProject facetedProject) {
+    this.facetedProject = facetedProject;
+  }
+
+  /**
+   * Requires a facet version. Requiring the same facet again replaces the previous requirement.
+   *
+   * @param versionChangeAllowed false if the facet must be uninstalled and installed again to change its version.
+   * @return true if the facet version will be installed, in which case its install configuration can be set with
+   *         {@link #setConfig(IProjectFacet, Object)}.
+   */
+  boolean require(IProjectFacetVersion version, boolean versionChangeAllowed) {
+    IProjectFacet facet = version.getProjectFacet();
+    IProjectFacetVersion installedVersion = facetedProject.getInstalledVersion(facet);
+    if(version.equals(installedVersion)) {
+      requiredFacets.remove(facet);
+      return false;
+    }
+    Required required = new Required(version, installedVersion, versionChangeAllowed);
+    requiredFacets.put(facet, required);
+    return required.isInstall();
+  }
+
+  /**
+   * Sets the configuration object of a facet about to be installed or changed.
+   */
+  void setConfig(IProjectFacet facet, Object config) {
+    Required required = requiredFacets.get(facet);
+    if(required != null) {
+      required.config = config;
+    }
+  }
+
+  /**
+   * Applies the plan.
+   *
+   * @return true if the project facets have been modified.
+   */
+  boolean apply(IProgressMonitor monitor) throws CoreException {
+    if(requiredFacets.isEmpty()) {
+      return false;
+    }
+
+    Set<Action> uninstalls = new LinkedHashSet<Action>();
+    for(Required required : requiredFacets.values()) {
+      if(required.isReinstall()) {
+        uninstalls.add(new Action(Action.Type.UNINSTALL, required.installedVersion, null));
+      }
+    }
+    if(!uninstalls.isEmpty()) {
+      try {
+        facetedProject.modify(uninstalls, monitor);
+      } catch(Exception ex) {
+        MavenLogger.log("Error removing facets " + uninstalls, ex);
+      }
+    }
+
+    Set<Action> actions = new LinkedHashSet<Action>();
+    for(Required required : requiredFacets.values()) {
+      IProjectFacet facet = required.version.getProjectFacet();
+      if(!facetedProject.hasProjectFacet(facet)) {
+        actions.add(new Action(Action.Type.INSTALL, required.version, required.config));
+      } else if(required.versionChangeAllowed) {
+        actions.add(new Action(Action.Type.VERSION_CHANGE, required.version, required.config));
+      }
+      //else the uninstall failed, and was logged
+    }
+    if(!actions.isEmpty()) {
+      facetedProject.modify(actions, monitor);
+    }
+    requiredFacets.clear();
+    return true;
+  }
+
+  private static class Required {
+
+    final IProjectFacetVersion version;
+
+    final IProjectFacetVersion installedVersion;
+
+    final boolean versionChangeAllowed;
+
+    Object config;
+
+    Required(IProjectFacetVersion version, IProjectFacetVersion installedVersion, boolean versionChangeAllowed) {
+      this.version = version;
+      this.installedVersion = installedVersion;
+      this.versionChangeAllowed = versionChangeAllowed;
+    }
+
+    /**
+     * @return true if the facet will be installed, rather than just have its version changed.
+     */
+    boolean isInstall() {
+      return installedVersion == null || !versionChangeAllowed;
+    }
+
+    boolean isReinstall() {
+      return installedVersion != null && !versionChangeAllowed;
+    }
+  }
+}
@@ -8,13 +8,15 @@
 
 package org.maven.ide.eclipse.wtp;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
+import java.io.InputStream;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.List;
 import java.util.Set;
 
 import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
@@ -25,6 +27,7 @@ import org.apache.maven.lifecycle.MavenExecutionPlan;
 import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
@@ -33,9 +36,6 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
-import org.eclipse.ui.dialogs.IOverwriteQuery;
-import org.eclipse.ui.internal.ide.filesystem.FileSystemStructureProvider;
-import org.eclipse.ui.wizards.datatransfer.ImportOperation;
 import org.maven.ide.eclipse.MavenPlugin;
 import org.maven.ide.eclipse.core.IMavenConstants;
 import org.maven.ide.eclipse.embedder.IMaven;
@@ -56,15 +56,12 @@ public class MavenDeploymentDescriptorManagement implements DeploymentDescriptor
   private final VersionRange VALID_EAR_PLUGIN_RANGE = VersionRange.createFromVersion("2.4.3");
 
   
-  private static final IOverwriteQuery OVERWRITE_ALL_QUERY = new IOverwriteQuery() {
-    public String queryOverwrite(String pathString) {
-      return IOverwriteQuery.ALL;
-    }
-  };
+  private static final String APPLICATION_XML = "application.xml";
 
   /**
-   * Executes ear:generate-application-xml goal to generate application.xml (and jboss-app.xml if needed). Existing
-   * files will be overwritten.
+   * Generates application.xml in-process when the maven-ear-plugin configuration allows it, otherwise executes
+   * ear:generate-application-xml goal to generate application.xml (and jboss-app.xml if needed). Existing files will
+   * be overwritten, unless their content is unchanged.
    * 
    * @throws CoreException
    */
@@ -72,6 +69,15 @@ public class MavenDeploymentDescriptorManagement implements DeploymentDescriptor
   public void updateConfiguration(IProject project, MavenProject mavenProject, EarPluginConfiguration plugin,
       IProgressMonitor monitor) throws CoreException {
 
+    if(ApplicationXmlGenerator.isSupported(plugin)) {
+      if(plugin.isGenerateApplicationXml()) {
+        IFolder metaInfFolder = project.getFolder(plugin.getEarContentDirectory(project) + "/META-INF/");
+        byte[] applicationXml = new ApplicationXmlGenerator(plugin).generate();
+        writeIfChanged(metaInfFolder.getFile(APPLICATION_XML), applicationXml, monitor);
+      }
+      return;
+    }
+
     MavenProjectManager projectManager = MavenPlugin.getDefault().getMavenProjectManager();
 
     IMavenProjectFacade mavenFacade = projectManager.getProject(project);
@@ -89,57 +95,109 @@ public class MavenDeploymentDescriptorManagement implements DeploymentDescriptor
     }
     File generatedDescriptorLocation;
     try {
-      generatedDescriptorLocation = getTempDirectory();
+      generatedDescriptorLocation = getTempDirectory(project);
     } catch(IOException ex) {
       IStatus status = new Status(IStatus.ERROR, MavenWtpPlugin.ID, ex.getLocalizedMessage(), ex);
       throw new CoreException(status);
     }
-    Xpp3Dom genDescriptorLocationDom = configuration.getChild("generatedDescriptorLocation");
-    if(genDescriptorLocationDom == null) {
-      genDescriptorLocationDom = new Xpp3Dom("generatedDescriptorLocation");
-      configuration.addChild(genDescriptorLocationDom);
-    }
-    genDescriptorLocationDom.setValue(generatedDescriptorLocation.getAbsolutePath());
+    try {
+      Xpp3Dom genDescriptorLocationDom = configuration.getChild("generatedDescriptorLocation");
+      if(genDescriptorLocationDom == null) {
+        genDescriptorLocationDom = new Xpp3Dom("generatedDescriptorLocation");
+        configuration.addChild(genDescriptorLocationDom);
+      }
+      genDescriptorLocationDom.setValue(generatedDescriptorLocation.getAbsolutePath());
 
-    // Fix for http://jira.codehaus.org/browse/MEAR-116?focusedCommentId=232316&page=com.atlassian.jira.plugin.system.issuetabpanels%3Acomment-tabpanel#action_232316
-    // affecting maven-ear-plugin version < 2.4.3
-    if(!VALID_EAR_PLUGIN_RANGE.containsVersion(new DefaultArtifactVersion(genConfigMojo.getVersion()))) {
-      overrideModules(configuration, plugin.getEarModules());
-    }
+      // Fix for http://jira.codehaus.org/browse/MEAR-116?focusedCommentId=232316&page=com.atlassian.jira.plugin.system.issuetabpanels%3Acomment-tabpanel#action_232316
+      // affecting maven-ear-plugin version < 2.4.3
+      if(!VALID_EAR_PLUGIN_RANGE.containsVersion(new DefaultArtifactVersion(genConfigMojo.getVersion()))) {
+        overrideModules(configuration, plugin.getEarModules());
+      }
 
-    //Create a maven request + session
-    IMaven maven = MavenPlugin.getDefault().getMaven();
-    IFile pomResource = project.getFile(IMavenConstants.POM_FILE_NAME);
+      //Create a maven request + session
+      IMaven maven = MavenPlugin.getDefault().getMaven();
+      IFile pomResource = project.getFile(IMavenConstants.POM_FILE_NAME);
 
-    //TODO check offline behavior, profiles
-    MavenExecutionRequest request = projectManager.createExecutionRequest(pomResource,
-        mavenFacade.getResolverConfiguration(), monitor);
-    MavenSession session = maven.createSession(request, mavenProject);
+      //TODO check offline behavior, profiles
+      MavenExecutionRequest request = projectManager.createExecutionRequest(pomResource,
+          mavenFacade.getResolverConfiguration(), monitor);
+      MavenSession session = maven.createSession(request, mavenProject);
 
-    //Execute our hacked mojo 
-    maven.execute(session, genConfigMojo, monitor);
+      //Execute our hacked mojo 
+      maven.execute(session, genConfigMojo, monitor);
+      if(monitor.isCanceled()) {
+        throw new OperationCanceledException();
+      }
 
-    //Copy generated files to their final location
-    File[] files = generatedDescriptorLocation.listFiles();
-    if(files.length > 0) {
-      List<File> filesToImport = new ArrayList<File>();
-      for(int i = 0; i < files.length; i++ ) {
-        filesToImport.add(files[i]);
+      //Copy generated files to their final location, leaving unchanged files untouched
+      File[] files = generatedDescriptorLocation.listFiles();
+      IFolder metaInfFolder = project.getFolder(plugin.getEarContentDirectory(project) + "/META-INF/");
+      for(File file : files) {
+        if(file.isFile()) {
+          writeIfChanged(metaInfFolder.getFile(file.getName()), readFile(file), monitor);
+        }
       }
-      try {
-        IFolder metaInfFolder = project.getFolder(plugin.getEarContentDirectory(project) + "/META-INF/");
-        ImportOperation op = new ImportOperation(metaInfFolder.getFullPath(), generatedDescriptorLocation,
-            new FileSystemStructureProvider(), OVERWRITE_ALL_QUERY, filesToImport);
-        op.setCreateContainerStructure(false);
-        op.run(monitor);
-      } catch(InvocationTargetException ex) {
-        IStatus status = new Status(IStatus.ERROR, MavenWtpPlugin.ID, IStatus.ERROR, ex.getMessage(), ex);
-        throw new CoreException(status);
-      } catch(InterruptedException ex) {
-        throw new OperationCanceledException(ex.getMessage());
+    } finally {
+      //Also cleans up after a cancellation or a failed execution
+      deleteDirectory(generatedDescriptorLocation);
+    }
+  }
+
+  /**
+   * Writes a generated deployment descriptor, unless the existing file already has the exact same content.
+   * 
+   * @return true if the file was written.
+   */
+  private static boolean writeIfChanged(IFile file, byte[] content, IProgressMonitor monitor) throws CoreException {
+    if(file.exists()) {
+      if(Arrays.equals(content, getContents(file))) {
+        return false;
       }
+      file.setContents(new ByteArrayInputStream(content), true, false, monitor);
+    } else {
+      createFolder(file.getParent(), monitor);
+      file.create(new ByteArrayInputStream(content), true, monitor);
+    }
+    return true;
+  }
+
+  private static byte[] getContents(IFile file) throws CoreException {
+    try {
+      return toByteArray(file.getContents(true));
+    } catch(IOException ex) {
+      IStatus status = new Status(IStatus.ERROR, MavenWtpPlugin.ID, ex.getLocalizedMessage(), ex);
+      throw new CoreException(status);
+    }
+  }
+
+  private static byte[] readFile(File file) throws CoreException {
+    try {
+      return toByteArray(new FileInputStream(file));
+    } catch(IOException ex) {
+      IStatus status = new Status(IStatus.ERROR, MavenWtpPlugin.ID, ex.getLocalizedMessage(), ex);
+      throw new CoreException(status);
+    }
+  }
+
+  private static byte[] toByteArray(InputStream is) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      byte[] buffer = new byte[4096];
+      int n;
+      while((n = is.read(buffer)) > -1) {
+        out.write(buffer, 0, n);
+      }
+    } finally {
+      is.close();
+    }
+    return out.toByteArray();
+  }
+
+  private static void createFolder(IContainer container, IProgressMonitor monitor) throws CoreException {
+    if(container instanceof IFolder && !container.exists()) {
+      createFolder(container.getParent(), monitor);
+      ((IFolder) container).create(true, true, monitor);
     }
-    deleteDirectory(generatedDescriptorLocation);
   }
 
   private void overrideModules(Xpp3Dom configuration, Set<EarModule> earModules) {
@@ -158,21 +216,15 @@ public class MavenDeploymentDescriptorManagement implements DeploymentDescriptor
     }
   }
 
-  private File getTempDirectory() throws IOException {
-    File tempDir = new File(System.getProperty("java.io.tmpdir"));
-    File dir = new File(tempDir, ".mavenDeploymentDescriptorManagement");
-    if(dir.exists()) {
-      if(dir.isFile()) {
-        if(!dir.delete()) {
-          throw new IOException("Could not delete temp file: " + dir.getAbsolutePath());
-        } else {
-          if(!deleteDirectory(dir)) {
-            throw new IOException("Could not delete temp file: " + dir.getAbsolutePath());
-          }
-        }
-      }
+  /**
+   * Creates a new temporary directory for each invocation, so that EAR projects can generate their deployment
+   * descriptors concurrently without overwriting each other's files.
+   */
+  private File getTempDirectory(IProject project) throws IOException {
+    File dir = File.createTempFile(".mavenDeploymentDescriptorManagement-" + project.getName() + "-", "");
+    if(!dir.delete() || !dir.mkdir()) {
+      throw new IOException("Could not create temp directory: " + dir.getAbsolutePath());
     }
-    dir.mkdir();
     return dir;
   }
 
@@ -215,5 +267,4 @@ public class MavenDeploymentDescriptorManagement implements DeploymentDescriptor
     }
     return mojoExecutions;
   }
-
 }
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2008 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.maven.ide.eclipse.wtp;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.maven.ide.eclipse.MavenPlugin;
+import org.maven.ide.eclipse.project.IMavenProjectFacade;
+
+
+/**
+ * Keeps track of a compact fingerprint of everything module dependencies are computed from : the resolved artifacts,
+ * the packaging plugin configuration and the final name of a project, and the packaging, packaging plugin
+ * configuration and final name of its workspace dependencies. When the fingerprint of a project didn't change since
+ * its module dependencies were last set, there's no need to recompute them.
+ * <p>
+ * Fingerprints are read and recorded from concurrent configurations, every access to them is synchronized.
+ * </p>
+ *
+ * @author Fred Bricon
+ */
+class ModuleDependenciesFingerprint {
+
+  private static final Map<IProject, String> fingerprints = new HashMap<IProject, String>();
+
+  private ModuleDependenciesFingerprint() {
+    //We don't need to instantiate this class
+  }
+
+  /**
+   * @return true if the module dependencies of the project need to be (re)computed.
+   */
+  static boolean hasChanged(IProject project, MavenProject mavenProject, IProgressMonitor monitor)
+      throws CoreException {
+    String fingerprint = compute(project, mavenProject, monitor);
+    synchronized(fingerprints) {
+      return !fingerprint.equals(fingerprints.get(project));
+    }
+  }
+
+  /**
+   * Records the fingerprint of a project whose module dependencies have just been set.
+   */
+  static void update(IProject project, MavenProject mavenProject, IProgressMonitor monitor) throws CoreException {
+    String fingerprint = compute(project, mavenProject, monitor);
+    synchronized(fingerprints) {
+      fingerprints.put(project, fingerprint);
+    }
+  }
+
+  static void remove(IProject project) {
+    synchronized(fingerprints) {
+      fingerprints.remove(project);
+    }
+  }
+
+  static String compute(IProject project, MavenProject mavenProject, IProgressMonitor monitor) throws CoreException {
+    StringBuilder sb = new StringBuilder();
+    appendPackaging(sb, mavenProject);
+
+    Set<Artifact> artifacts = mavenProject.getArtifacts();
+    if(artifacts != null) {
+      for(Artifact artifact : artifacts) {
+        sb.append('|').append(artifact.getGroupId()).append(':').append(artifact.getArtifactId()).append(':')
+            .append(artifact.getVersion()).append(':').append(artifact.getType()).append(':')
+            .append(artifact.getClassifier()).append(':').append(artifact.getScope()).append(':')
+            .append(artifact.isOptional());
+        //The file location changes when a dependency is resolved from the workspace instead of the local repository
+        File file = artifact.getFile();
+        if(file != null) {
+          sb.append(':').append(file.getAbsolutePath());
+        }
+      }
+    }
+
+    //How a dependency project is referenced depends on its own packaging configuration
+    for(IMavenProjectFacade dependency : getWorkspaceDependencies(project, mavenProject)) {
+      sb.append("|dependency:").append(dependency.getProject().getName()).append('|');
+      appendPackaging(sb, dependency.getMavenProject(monitor));
+    }
+    return digest(sb.toString());
+  }
+
+  private static void appendPackaging(StringBuilder sb, MavenProject mavenProject) {
+    String packaging = mavenProject.getPackaging();
+    sb.append(packaging).append('|').append(mavenProject.getBuild().getFinalName()).append('|');
+
+    Plugin plugin = mavenProject.getPlugin("org.apache.maven.plugins:maven-" + packaging + "-plugin");
+    if(plugin != null) {
+      sb.append(plugin.getVersion()).append('|').append(plugin.getConfiguration());
+    }
+  }
+
+  private static List<IMavenProjectFacade> getWorkspaceDependencies(IProject project, MavenProject mavenProject) {
+    ConfigurationSession session = ConfigurationSession.getCurrent();
+    if(session != null) {
+      return session.getWorkspaceDependencies(project, mavenProject);
+    }
+    return AbstractProjectConfiguratorDelegate.collectWorkspaceDependencies(MavenPlugin.getDefault()
+        .getMavenProjectManager(), project, mavenProject);
+  }
+
+  private static String digest(String value) {
+    try {
+      byte[] bytes = MessageDigest.getInstance("MD5").digest(value.getBytes("UTF-8"));
+      StringBuilder hex = new StringBuilder(bytes.length * 2);
+      for(byte b : bytes) {
+        hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return hex.toString();
+    } catch(NoSuchAlgorithmException ex) {
+      return value;
+    } catch(UnsupportedEncodingException ex) {
+      return value;
+    }
+  }
+}
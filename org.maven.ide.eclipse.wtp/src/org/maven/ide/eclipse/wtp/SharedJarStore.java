@@ -0,0 +1,332 @@
+/*******************************************************************************
+ * Copyright (c) 2008 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.maven.ide.eclipse.wtp;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.IClasspathContainer;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.maven.ide.eclipse.core.MavenLogger;
+import org.maven.ide.eclipse.jdt.BuildPathManager;
+import org.maven.ide.eclipse.wtp.internal.MavenWtpPlugin;
+
+
+/**
+ * Content addressed store of the jars renamed to avoid file name collisions in WEB-INF/lib. A jar is stored once per
+ * content and file name, as &lt;store&gt;/&lt;sha1 of the content&gt;/&lt;file name&gt;, under the plugin state
+ * location, so all the projects of the workspace depending on the same artifact share the same copy.
+ * <p>
+ * Digests are cached per file, length and modification time, so a jar is only read again when it changes. Jars no
+ * longer referenced by the Maven classpath container of any project are pruned, along with their cached digests, once
+ * a project stops using some of them, see {@link #setProjectJars(IProject, Set)}.
+ * </p>
+ *
+ * @author Fred Bricon
+ */
+class SharedJarStore {
+
+  private static final String STORE_FOLDER = "jars";
+
+  /**
+   * Delay before pruning the store, so a batch of configurations only triggers one pruning.
+   */
+  private static final long PRUNE_DELAY = 5000L;
+
+  private static final Map<File, CachedDigest> digests = new HashMap<File, CachedDigest>();
+
+  /**
+   * The stored jars used by each project since the workspace was started.
+   */
+  private static final Map<IProject, Set<File>> projectJars = new HashMap<IProject, Set<File>>();
+
+  private static final Job pruneJob = new Job("Pruning shared jars") {
+    protected IStatus run(IProgressMonitor monitor) {
+      try {
+        prune(monitor);
+      } catch(CoreException ex) {
+        MavenLogger.log(ex);
+      } catch(IOException ex) {
+        MavenLogger.log("Could not prune the shared jars", ex);
+      }
+      return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+    }
+
+    public boolean belongsTo(Object family) {
+      //Cancelled when the plugin stops
+      return MavenWtpPlugin.ID.equals(family);
+    }
+  };
+
+  static {
+    pruneJob.setSystem(true);
+    //Don't run while projects are being configured
+    pruneJob.setRule(ResourcesPlugin.getWorkspace().getRoot());
+  }
+
+  private SharedJarStore() {
+    //We don't need to instantiate this class
+  }
+
+  /**
+   * @return the root folder of the store, or null if the plugin is not started.
+   */
+  static File getStoreFolder() {
+    MavenWtpPlugin plugin = MavenWtpPlugin.getDefault();
+    if(plugin == null) {
+      return null;
+    }
+    return plugin.getStateLocation().append(STORE_FOLDER).toFile();
+  }
+
+  /**
+   * Returns the stored copy of a jar, named fileName, storing it first if necessary.
+   *
+   * @return the stored jar, or null if the store is not available.
+   */
+  static File getJar(File src, String fileName) throws IOException {
+    File storeFolder = getStoreFolder();
+    if(storeFolder == null) {
+      return null;
+    }
+    String digest = getDigest(src);
+    File dst = new File(new File(storeFolder, digest), fileName);
+    if(!isStored(dst, digest)) {
+      store(src, dst, digest);
+    }
+    return dst;
+  }
+
+  /**
+   * @return true if dst exists and has the expected content.
+   */
+  private static boolean isStored(File dst, String digest) throws IOException {
+    return dst.exists() && digest.equals(getDigest(dst));
+  }
+
+  /**
+   * Copies src to a temporary file next to dst, then renames it, so other projects never see a partial jar.
+   */
+  private static void store(File src, File dst, String digest) throws IOException {
+    File folder = dst.getParentFile();
+    if(!folder.isDirectory() && !folder.mkdirs()) {
+      throw new IOException("Could not create " + folder);
+    }
+    File tmp = File.createTempFile(dst.getName(), ".tmp", folder);
+    try {
+      copy(src, tmp);
+      tmp.setLastModified(src.lastModified());
+      if(!tmp.renameTo(dst)) {
+        //Stored concurrently, or the target can't be replaced (Windows)
+        if(!isStored(dst, digest)) {
+          if(!dst.delete() || !tmp.renameTo(dst)) {
+            throw new IOException("Could not store " + src + " as " + dst);
+          }
+        }
+      }
+    } finally {
+      if(tmp.exists()) {
+        tmp.delete();
+      }
+    }
+  }
+
+  private static void copy(File src, File dst) throws IOException {
+    FileInputStream in = new FileInputStream(src);
+    try {
+      FileOutputStream out = new FileOutputStream(dst);
+      try {
+        FileChannel inChannel = in.getChannel();
+        FileChannel outChannel = out.getChannel();
+        long size = inChannel.size();
+        long position = 0;
+        while(position < size) {
+          position += inChannel.transferTo(position, size - position, outChannel);
+        }
+      } finally {
+        out.close();
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Records the stored jars now used by a project, and prunes the store if the project stopped using some of them. The
+   * jars used by a project before the workspace was started are unknown, so the first call for each project prunes the
+   * store too.
+   */
+  static void setProjectJars(IProject project, Set<File> jars) {
+    Set<File> previousJars;
+    synchronized(projectJars) {
+      previousJars = projectJars.put(project, jars);
+    }
+    if(previousJars == null || !jars.containsAll(previousJars)) {
+      schedulePrune();
+    }
+  }
+
+  /**
+   * Forgets the stored jars used by a removed project, and prunes the store.
+   */
+  static void removeProject(IProject project) {
+    synchronized(projectJars) {
+      projectJars.remove(project);
+    }
+    schedulePrune();
+  }
+
+  /**
+   * Prunes the store, if it exists, once the current configurations are done.
+   */
+  private static void schedulePrune() {
+    File storeFolder = getStoreFolder();
+    if(storeFolder != null && storeFolder.isDirectory()) {
+      pruneJob.schedule(PRUNE_DELAY);
+    }
+  }
+
+  /**
+   * Deletes the stored jars that are not referenced by the Maven classpath container of any project, and forgets the
+   * digests of the files that no longer exist. Nothing is deleted while some projects are closed, as their classpath
+   * can't be read.
+   */
+  static void prune(IProgressMonitor monitor) throws CoreException, IOException {
+    File storeFolder = getStoreFolder();
+    if(storeFolder == null || !storeFolder.isDirectory()) {
+      return;
+    }
+
+    Set<File> referenced = new HashSet<File>();
+    for(IProject project : ResourcesPlugin.getWorkspace().getRoot().getProjects()) {
+      if(!project.isOpen() || monitor.isCanceled()) {
+        return;
+      }
+      IJavaProject javaProject = JavaCore.create(project);
+      if(!javaProject.exists()) {
+        continue;
+      }
+      IClasspathContainer container = BuildPathManager.getMaven2ClasspathContainer(javaProject);
+      if(container == null) {
+        continue;
+      }
+      for(IClasspathEntry entry : container.getClasspathEntries()) {
+        if(entry.getEntryKind() == IClasspathEntry.CPE_LIBRARY) {
+          //Classpath entries use the canonical path of the stored jars
+          referenced.add(entry.getPath().toFile());
+        }
+      }
+    }
+
+    File[] digestFolders = storeFolder.listFiles();
+    if(digestFolders != null) {
+      for(File digestFolder : digestFolders) {
+        if(monitor.isCanceled()) {
+          return;
+        }
+        File[] jars = digestFolder.listFiles();
+        if(jars != null) {
+          for(File jar : jars) {
+            if(!referenced.contains(jar.getCanonicalFile())) {
+              jar.delete();
+            }
+          }
+        }
+        //Only deleted if empty
+        digestFolder.delete();
+      }
+    }
+
+    synchronized(digests) {
+      for(Iterator<File> files = digests.keySet().iterator(); files.hasNext();) {
+        if(!files.next().exists()) {
+          files.remove();
+        }
+      }
+    }
+  }
+
+  static String getDigest(File src) throws IOException {
+    long length = src.length();
+    long lastModified = src.lastModified();
+    synchronized(digests) {
+      CachedDigest cached = digests.get(src);
+      if(cached != null && cached.length == length && cached.lastModified == lastModified) {
+        return cached.digest;
+      }
+    }
+
+    String digest = computeDigest(src);
+
+    synchronized(digests) {
+      digests.put(src, new CachedDigest(length, lastModified, digest));
+    }
+    return digest;
+  }
+
+  private static String computeDigest(File src) throws IOException {
+    MessageDigest sha1;
+    try {
+      sha1 = MessageDigest.getInstance("SHA-1");
+    } catch(NoSuchAlgorithmException ex) {
+      //SHA-1 is required on every Java platform
+      throw new IllegalStateException(ex);
+    }
+    InputStream is = new FileInputStream(src);
+    try {
+      byte[] buffer = new byte[8192];
+      int read;
+      while((read = is.read(buffer)) > -1) {
+        sha1.update(buffer, 0, read);
+      }
+    } finally {
+      is.close();
+    }
+    StringBuilder hex = new StringBuilder(40);
+    for(byte b : sha1.digest()) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+
+  private static class CachedDigest {
+
+    final long length;
+
+    final long lastModified;
+
+    final String digest;
+
+    CachedDigest(long length, long lastModified, String digest) {
+      this.length = length;
+      this.lastModified = lastModified;
+      this.digest = digest;
+    }
+  }
+}
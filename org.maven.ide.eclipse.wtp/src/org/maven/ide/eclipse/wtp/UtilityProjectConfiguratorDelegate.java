@@ -8,15 +8,11 @@
 
 package org.maven.ide.eclipse.wtp;
 
-import java.util.LinkedHashSet;
-import java.util.Set;
-
 import org.apache.maven.project.MavenProject;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.wst.common.project.facet.core.IFacetedProject;
-import org.eclipse.wst.common.project.facet.core.IFacetedProject.Action;
 import org.eclipse.wst.common.project.facet.core.ProjectFacetsManager;
 import org.maven.ide.eclipse.jdt.IClasspathDescriptor;
 
@@ -33,11 +29,9 @@ class UtilityProjectConfiguratorDelegate extends AbstractProjectConfiguratorDele
 
     // Only (re)configure utility projects 
     if(facetedProject.hasProjectFacet(WTPProjectsUtil.UTILITY_FACET)) {
-      Set<Action> actions = new LinkedHashSet<Action>();
-      installJavaFacet(actions, project, facetedProject);
-      if(!actions.isEmpty()) {
-        facetedProject.modify(actions, monitor);
-      }
+      FacetPlan plan = new FacetPlan(facetedProject);
+      requireJavaFacet(plan, project);
+      plan.apply(monitor);
 
       removeTestFolderLinks(project, mavenProject, monitor, "/"); 
 
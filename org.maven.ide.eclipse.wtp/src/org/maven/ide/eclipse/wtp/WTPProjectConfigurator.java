@@ -14,6 +14,7 @@ import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.wst.common.componentcore.ModuleCoreNature;
+import org.maven.ide.eclipse.core.IMavenConstants;
 import org.maven.ide.eclipse.core.MavenLogger;
 import org.maven.ide.eclipse.jdt.IClasspathDescriptor;
 import org.maven.ide.eclipse.jdt.IJavaProjectConfigurator;
@@ -22,6 +23,7 @@ import org.maven.ide.eclipse.project.MavenProjectChangedEvent;
 import org.maven.ide.eclipse.project.configurator.AbstractBuildParticipant;
 import org.maven.ide.eclipse.project.configurator.AbstractProjectConfigurator;
 import org.maven.ide.eclipse.project.configurator.ProjectConfigurationRequest;
+import org.maven.ide.eclipse.wtp.filtering.PreparedFilteringExecution;
 import org.maven.ide.eclipse.wtp.filtering.ResourceFilteringBuildParticipant;
 
 
@@ -46,11 +48,17 @@ public class WTPProjectConfigurator extends AbstractProjectConfigurator implemen
         return;
       }
 
+      //Joins the session of the caller or of the current job, if any
+      ConfigurationSession session = ConfigurationSession.join();
       try {
         configuratorDelegate.configureProject(project, mavenProject, monitor);
-        configuratorDelegate.setModuleDependencies(project, mavenProject, monitor);
+        session.markConfigured(project, project.getFile(IMavenConstants.POM_FILE_NAME));
+        //Module dependencies are set once all the projects of the session are configured
+        session.deferModuleDependencies(project, mavenProject);
       } catch(MarkedException ex) {
         MavenLogger.log(ex.getMessage(), ex);
+      } finally {
+        session.end(monitor);
       }
     }
   }
@@ -60,6 +68,10 @@ public class WTPProjectConfigurator extends AbstractProjectConfigurator implemen
     IMavenProjectFacade facade = event.getMavenProject();
     if(facade != null) {
       IProject project = facade.getProject();
+      //pom.xml has changed, the project needs to be pre-configured again
+      ConfigurationSession.invalidate(project);
+      //and its ear configuration read again
+      EarPluginConfiguration.remove(project);
       if (project.getResourceAttributes().isReadOnly()){
         return;
       }
@@ -68,10 +80,25 @@ public class WTPProjectConfigurator extends AbstractProjectConfigurator implemen
         MavenProject mavenProject = facade.getMavenProject(monitor);
         IProjectConfiguratorDelegate configuratorDelegate = ProjectConfiguratorDelegateFactory
             .getProjectConfiguratorDelegate(mavenProject.getPackaging());
-        if(configuratorDelegate != null) {
-          configuratorDelegate.setModuleDependencies(project, mavenProject, monitor);
+        //Only recompute module dependencies if something they depend on has changed
+        if(configuratorDelegate != null && ModuleDependenciesFingerprint.hasChanged(project, mavenProject, monitor)) {
+          ConfigurationSession session = ConfigurationSession.getCurrent();
+          if(session != null) {
+            //Set along with the other projects of the session
+            session.deferModuleDependencies(project, mavenProject);
+          } else {
+            configuratorDelegate.setModuleDependencies(project, mavenProject, monitor);
+            ModuleDependenciesFingerprint.update(project, mavenProject, monitor);
+          }
         }
       }
+    } else if(event.getOldMavenProject() != null) {
+      //Project was removed
+      IProject project = event.getOldMavenProject().getProject();
+      ModuleDependenciesFingerprint.remove(project);
+      EarPluginConfiguration.remove(project);
+      PreparedFilteringExecution.remove(project);
+      SharedJarStore.removeProject(project);
     }
   }
 
@@ -10,6 +10,10 @@ package org.maven.ide.eclipse.wtp;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.maven.model.Plugin;
@@ -20,13 +24,19 @@ import org.codehaus.plexus.util.xml.Xpp3DomUtils;
 import org.codehaus.plexus.util.xml.Xpp3DomWriter;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.jst.j2ee.internal.J2EEVersionConstants;
 import org.eclipse.jst.j2ee.web.project.facet.WebFacetUtils;
 import org.eclipse.jst.jee.util.internal.JavaEEQuickPeek;
 import org.eclipse.wst.common.project.facet.core.IProjectFacetVersion;
+import org.maven.ide.eclipse.wtp.internal.AntPathMatcher;
+import org.maven.ide.eclipse.wtp.internal.AntPathMatcher.CompiledPattern;
 import org.maven.ide.eclipse.wtp.internal.StringUtils;
+import org.maven.ide.eclipse.wtp.internal.WebXmlVersionSniffer;
 
 
 /**
@@ -44,13 +54,100 @@ public class WarPluginConfiguration {
 
   private static final int WEB_3_0_ID = 30;//Same Value as J2EEVersionConstants.WEB_3_0_ID from WTP 3.2 (org.eclipse.jst.j2ee.core_1.2.0.vX.jar)
 
+  /**
+   * Configurations already read, per project. See {@link #get(IProject, MavenProject)}
+   */
+  private static final Map<IProject, WarPluginConfiguration> cache = new HashMap<IProject, WarPluginConfiguration>();
+
   final Plugin plugin;
 
   private IProject project;
 
+  private final MavenProject mavenProject;
+
+  private final AntPathMatcher packagingMatcher = new AntPathMatcher();
+
+  private CompiledPattern[] packagingExcludePatterns;
+
+  private CompiledPattern[] packagingIncludePatterns;
+
+  private Xpp3Dom[] webResources;
+
+  private boolean webResourcesRead;
+
+  private String manifestClasspathPrefix;
+
+  private boolean manifestClasspathPrefixRead;
+
+  /**
+   * The web.xml file the web facet version was read from, null if it hasn't been read yet.
+   */
+  private IFile webXml;
+
+  private IProjectFacetVersion webFacetVersion;
+
   public WarPluginConfiguration(MavenProject mavenProject, IProject project) {
     this.plugin = mavenProject.getPlugin("org.apache.maven.plugins:maven-war-plugin");
     this.project = project;
+    this.mavenProject = mavenProject;
+  }
+
+  /**
+   * Returns a snapshot of the configuration of a war project. Values read from the maven-war-plugin configuration are
+   * computed once and kept as long as the Maven project isn't reloaded (i.e. until pom.xml or a dependency changes).
+   * The web facet version is kept until web.xml changes.
+   */
+  public static WarPluginConfiguration get(IProject project, MavenProject mavenProject) {
+    synchronized(cache) {
+      WarPluginConfiguration config = cache.get(project);
+      if(config == null || config.mavenProject != mavenProject) {
+        config = new WarPluginConfiguration(mavenProject, project);
+        cache.put(project, config);
+      }
+      return config;
+    }
+  }
+
+  /**
+   * @return a listener keeping the cached configurations in sync with the workspace : removed or closed projects are
+   *         forgotten, web.xml changes reset the web facet version.
+   */
+  public static IResourceChangeListener createCacheInvalidator() {
+    return new IResourceChangeListener() {
+      public void resourceChanged(IResourceChangeEvent event) {
+        IResourceDelta delta = event.getDelta();
+        if(delta == null) {
+          return;
+        }
+        List<WarPluginConfiguration> configs;
+        synchronized(cache) {
+          if(cache.isEmpty()) {
+            return;
+          }
+          configs = new ArrayList<WarPluginConfiguration>(cache.values());
+        }
+        for(WarPluginConfiguration config : configs) {
+          IResourceDelta projectDelta = delta.findMember(config.project.getFullPath());
+          if(projectDelta == null) {
+            continue;
+          }
+          if(projectDelta.getKind() == IResourceDelta.REMOVED || !config.project.isOpen()) {
+            synchronized(cache) {
+              cache.remove(config.project);
+            }
+          } else {
+            config.webXmlChanged(delta);
+          }
+        }
+      }
+    };
+  }
+
+  private synchronized void webXmlChanged(IResourceDelta delta) {
+    if(webXml != null && delta.findMember(webXml.getFullPath()) != null) {
+      webXml = null;
+      webFacetVersion = null;
+    }
   }
 
   static boolean isWarProject(MavenProject mavenProject) {
@@ -69,7 +166,15 @@ public class WarPluginConfiguration {
   }
 
  
-  public Xpp3Dom[] getWebResources() {
+  public synchronized Xpp3Dom[] getWebResources() {
+    if(!webResourcesRead) {
+      webResources = readWebResources();
+      webResourcesRead = true;
+    }
+    return webResources;
+  }
+
+  private Xpp3Dom[] readWebResources() {
     Xpp3Dom config = getConfiguration();
     if(config != null) {
       Xpp3Dom webResources = config.getChild("webResources");
@@ -148,6 +253,41 @@ public class WarPluginConfiguration {
     return new String[0];
   }
 
+  /**
+   * @return the compiled packagingExcludes patterns, compiled once per configuration.
+   */
+  public synchronized CompiledPattern[] getPackagingExcludePatterns() {
+    if(packagingExcludePatterns == null) {
+      packagingExcludePatterns = compile(getPackagingExcludes());
+    }
+    return packagingExcludePatterns;
+  }
+
+  /**
+   * @return the compiled packagingIncludes patterns, compiled once per configuration.
+   */
+  public synchronized CompiledPattern[] getPackagingIncludePatterns() {
+    if(packagingIncludePatterns == null) {
+      packagingIncludePatterns = compile(getPackagingIncludes());
+    }
+    return packagingIncludePatterns;
+  }
+
+  /**
+   * @return the matcher used to compile the packaging patterns.
+   */
+  public AntPathMatcher getPackagingMatcher() {
+    return packagingMatcher;
+  }
+
+  private CompiledPattern[] compile(String[] patterns) {
+    CompiledPattern[] compiledPatterns = new CompiledPattern[patterns.length];
+    for(int i = 0; i < patterns.length; i++ ) {
+      compiledPatterns[i] = packagingMatcher.compile(patterns[i]);
+    }
+    return compiledPatterns;
+  }
+
   public boolean isAddManifestClasspath() {
     Xpp3Dom config = getConfiguration();
     if(config != null) {
@@ -165,7 +305,15 @@ public class WarPluginConfiguration {
     return false;
   }
 
-  public String getManifestClasspathPrefix() {
+  public synchronized String getManifestClasspathPrefix() {
+    if(!manifestClasspathPrefixRead) {
+      manifestClasspathPrefix = readManifestClasspathPrefix();
+      manifestClasspathPrefixRead = true;
+    }
+    return manifestClasspathPrefix;
+  }
+
+  private String readManifestClasspathPrefix() {
     Xpp3Dom config = getConfiguration();
     if(config != null) {
       Xpp3Dom arch = config.getChild("archive");
@@ -186,18 +334,60 @@ public class WarPluginConfiguration {
     return null;
   }
 
-  public IProjectFacetVersion getWebFacetVersion(IProject project) {
-    IFile webXml;
+  public synchronized IProjectFacetVersion getWebFacetVersion(IProject project) {
+    IFile webXml = getWebXml(project);
+    if(webFacetVersion == null || !webXml.equals(this.webXml)) {
+      webFacetVersion = readWebFacetVersion(webXml);
+      this.webXml = webFacetVersion == null ? null : webXml;
+    }
+    if(webFacetVersion != null) {
+      return webFacetVersion;
+    }
+   
+    //Not cached, as it depends on the classpath of the project
+    //MNGECLIPSE-1978 If no web.xml found and the project depends on some java EE 6 jar and WTP >= 3.2, then set web facet to 3.0
+    if (WTPProjectsUtil.isJavaEE6Available() && WTPProjectsUtil.hasInClassPath(project, "javax.servlet.annotation.WebServlet")) {
+      return WebFacetUtils.WEB_FACET.getVersion("3.0");
+    }
+    
+    //MNGECLIPSE-984 web.xml is optional for 2.5 Web Projects
+    return WTPProjectsUtil.DEFAULT_WEB_FACET;
+    //We don't want to prevent the project creation when the java compiler level is < 5, we coud try that instead :
+    //IProjectFacetVersion javaFv = JavaFacetUtils.compilerLevelToFacet(JavaFacetUtils.getCompilerLevel(project));
+    //return (JavaFacetUtils.JAVA_50.compareTo(javaFv) > 0)?WebFacetUtils.WEB_24:WebFacetUtils.WEB_25; 
+  }
+
+  private IFile getWebXml(IProject project) {
     String customWebXml = getCustomWebXml(project);
     if (customWebXml == null) {
-      webXml = project.getFolder(getWarSourceDirectory()).getFile(WEB_XML);
-    } else {
-      webXml = project.getFile(customWebXml);
+      return project.getFolder(getWarSourceDirectory()).getFile(WEB_XML);
     }
+    return project.getFile(customWebXml);
+  }
 
+  /**
+   * @return the web facet version matching the version of web.xml, or null if it can't be read.
+   */
+  private static IProjectFacetVersion readWebFacetVersion(IFile webXml) {
     if(webXml.isAccessible()) {
       try {
+        String version;
         InputStream is = webXml.getContents();
+        try {
+          version = WebXmlVersionSniffer.sniff(is);
+        } finally {
+          is.close();
+        }
+        if(version != null) {
+          if("3.0".equals(version) && !WebFacetUtils.WEB_FACET.hasVersion(version)) {
+            //only exists in WTP version >= 3.2
+            return null;
+          }
+          return WebFacetUtils.WEB_FACET.getVersion(version);
+        }
+
+        //Fall back on WTP for unusual descriptors
+        is = webXml.getContents();
         try {
           JavaEEQuickPeek jqp = new JavaEEQuickPeek(is);
           switch(jqp.getVersion()) {
@@ -222,18 +412,9 @@ public class WarPluginConfiguration {
         // expected
       }
     }
-   
-    //MNGECLIPSE-1978 If no web.xml found and the project depends on some java EE 6 jar and WTP >= 3.2, then set web facet to 3.0
-    if (WTPProjectsUtil.isJavaEE6Available() && WTPProjectsUtil.hasInClassPath(project, "javax.servlet.annotation.WebServlet")) {
-      return WebFacetUtils.WEB_FACET.getVersion("3.0");
-    }
-    
-    //MNGECLIPSE-984 web.xml is optional for 2.5 Web Projects
-    return WTPProjectsUtil.DEFAULT_WEB_FACET;
-    //We don't want to prevent the project creation when the java compiler level is < 5, we coud try that instead :
-    //IProjectFacetVersion javaFv = JavaFacetUtils.compilerLevelToFacet(JavaFacetUtils.getCompilerLevel(project));
-    //return (JavaFacetUtils.JAVA_50.compareTo(javaFv) > 0)?WebFacetUtils.WEB_24:WebFacetUtils.WEB_25; 
+    return null;
   }
+
   /**
    * Get the custom location of web.xml, as set in &lt;webXml&gt;.
    * @return the custom location of web.xml or null if &lt;webXml&gt; is not set
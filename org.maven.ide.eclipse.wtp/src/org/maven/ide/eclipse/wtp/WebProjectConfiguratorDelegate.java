@@ -10,7 +10,6 @@ package org.maven.ide.eclipse.wtp;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -48,7 +47,6 @@ import org.eclipse.wst.common.componentcore.resources.IVirtualResource;
 import org.eclipse.wst.common.frameworks.datamodel.DataModelFactory;
 import org.eclipse.wst.common.frameworks.datamodel.IDataModel;
 import org.eclipse.wst.common.project.facet.core.IFacetedProject;
-import org.eclipse.wst.common.project.facet.core.IFacetedProject.Action;
 import org.eclipse.wst.common.project.facet.core.IProjectFacetVersion;
 import org.eclipse.wst.common.project.facet.core.ProjectFacetsManager;
 import org.maven.ide.eclipse.MavenPlugin;
@@ -58,6 +56,7 @@ import org.maven.ide.eclipse.jdt.IClasspathEntryDescriptor;
 import org.maven.ide.eclipse.project.IMavenProjectFacade;
 import org.maven.ide.eclipse.wtp.filtering.WebResourceFilteringConfiguration;
 import org.maven.ide.eclipse.wtp.internal.AntPathMatcher;
+import org.maven.ide.eclipse.wtp.internal.AntPathMatcher.CompiledPattern;
 import org.maven.ide.eclipse.wtp.internal.ExtensionReader;
 
 
@@ -86,7 +85,7 @@ class WebProjectConfiguratorDelegate extends AbstractProjectConfiguratorDelegate
     IFacetedProject facetedProject = ProjectFacetsManager.create(project, true, monitor);
 
     // make sure to update the main deployment folder
-    WarPluginConfiguration config = new WarPluginConfiguration(mavenProject, project);
+    WarPluginConfiguration config = WarPluginConfiguration.get(project, mavenProject);
     String warSourceDirectory = config.getWarSourceDirectory();
     IFile defaultWebXml = project.getFolder(warSourceDirectory).getFile("WEB-INF/web.xml");
     IFolder libDir = project.getFolder(warSourceDirectory).getFolder("WEB-INF/lib");
@@ -94,53 +93,37 @@ class WebProjectConfiguratorDelegate extends AbstractProjectConfiguratorDelegate
     boolean alreadyHasWebXml = defaultWebXml.exists();
     boolean alreadyHasLibDir = libDir.exists();
         
-    Set<Action> actions = new LinkedHashSet<Action>();
+    FacetPlan plan = new FacetPlan(facetedProject);
 
-    installJavaFacet(actions, project, facetedProject);
+    requireJavaFacet(plan, project);
     
     IVirtualComponent component = ComponentCore.createComponent(project);
     if(component != null && warSourceDirectory != null) {
-      IPath warPath = new Path(warSourceDirectory);
-      //remove the old links (if there is one) before adding the new one.
-      component.getRootFolder().removeLink(warPath,IVirtualResource.NONE, monitor);
-      component.getRootFolder().createLink(warPath, IVirtualResource.NONE, monitor);
+      ComponentTransaction transaction = ComponentTransaction.begin(project);
+      try {
+        IPath warPath = new Path(warSourceDirectory);
+        //remove the old links (if there is one) before adding the new one.
+        component.getRootFolder().removeLink(warPath,IVirtualResource.NONE, monitor);
+        component.getRootFolder().createLink(warPath, IVirtualResource.NONE, monitor);
+        transaction.commit(monitor);
+      } finally {
+        transaction.dispose();
+      }
     }
     
     //MNGECLIPSE-2279 get the context root from the final name of the project, or artifactId by default.
     String contextRoot = getContextRoot(mavenProject);
     
     IProjectFacetVersion webFv = config.getWebFacetVersion(project);
-    if(!facetedProject.hasProjectFacet(WebFacetUtils.WEB_FACET)) {
-      installWebFacet(mavenProject, warSourceDirectory, contextRoot, actions, webFv);
-    } else {
-      IProjectFacetVersion projectFacetVersion = facetedProject.getProjectFacetVersion(WebFacetUtils.WEB_FACET);     
-      if(webFv.getVersionString() != null && !webFv.getVersionString().equals(projectFacetVersion.getVersionString())){
-        try {
-          Action uninstallAction = new IFacetedProject.Action(IFacetedProject.Action.Type.UNINSTALL,
-                                       facetedProject.getInstalledVersion(WebFacetUtils.WEB_FACET), 
-                                       null);
-          facetedProject.modify(Collections.singleton(uninstallAction), monitor);
-        } catch(Exception ex) {
-          MavenLogger.log("Error removing WEB facet", ex);
-        }
-        installWebFacet(mavenProject, warSourceDirectory, contextRoot, actions, webFv);
-      }
+    // WTP doesn't allow facet versions changes for JEE facets
+    if(plan.require(webFv, false)) {
+      plan.setConfig(WebFacetUtils.WEB_FACET, createWebFacetConfig(warSourceDirectory, contextRoot));
     }
 
-    if(!actions.isEmpty()) {
-      facetedProject.modify(actions, monitor);
-    }
+    plan.apply(monitor);
     
-    // MNGECLIPSE-632 remove test sources/resources from WEB-INF/classes
-    removeTestFolderLinks(project, mavenProject, monitor, "/WEB-INF/classes");
-
     addContainerAttribute(project, DEPENDENCY_ATTRIBUTE, monitor);
 
-    //MNGECLIPSE-2279 change the context root if needed
-    if (!contextRoot.equals(J2EEProjectUtilities.getServerContextRoot(project))) {
-      J2EEProjectUtilities.setServerContextRoot(project, contextRoot);
-    }
-
     //MNGECLIPSE-2357 support custom location of web.xml
     String customWebXml = config.getCustomWebXml(project);
     //If we have a custom web.xml but WTP created one against our will, we delete it 
@@ -151,35 +134,50 @@ class WebProjectConfiguratorDelegate extends AbstractProjectConfiguratorDelegate
     if (!alreadyHasLibDir && libDir.exists()) {
       libDir.delete(true, monitor);
     }
-    linkFile(project, customWebXml, "WEB-INF/web.xml", monitor);
 
-    
-    IPath filteredFolder = WebResourceFilteringConfiguration.getTargetFolder(mavenProject, project);
     if (component != null) {
       ProjectUtils.hideM2eclipseWtpFolder(mavenProject, project);
-      component.getRootFolder().removeLink(filteredFolder,IVirtualResource.NONE, monitor);
-      if (config.getWebResources() != null && config.getWebResources().length > 0) {
-        component.getRootFolder().createLink(filteredFolder, IVirtualResource.NONE, monitor);      
-      }      
     }
 
+    //All the component changes below are saved at once
+    ComponentTransaction transaction = ComponentTransaction.begin(project);
+    try {
+      // MNGECLIPSE-632 remove test sources/resources from WEB-INF/classes
+      removeTestFolderLinks(project, mavenProject, monitor, "/WEB-INF/classes");
+
+      //MNGECLIPSE-2279 change the context root if needed
+      if (!contextRoot.equals(J2EEProjectUtilities.getServerContextRoot(project))) {
+        J2EEProjectUtilities.setServerContextRoot(project, contextRoot);
+      }
+
+      linkFile(project, customWebXml, "WEB-INF/web.xml", monitor);
+
+      IPath filteredFolder = WebResourceFilteringConfiguration.getTargetFolder(mavenProject, project);
+      if (component != null) {
+        component.getRootFolder().removeLink(filteredFolder,IVirtualResource.NONE, monitor);
+        if (config.getWebResources() != null && config.getWebResources().length > 0) {
+          component.getRootFolder().createLink(filteredFolder, IVirtualResource.NONE, monitor);      
+        }      
+      }
+
+      transaction.commit(monitor);
+    } finally {
+      transaction.dispose();
+    }
   }
 
 
   /**
-   * Install a Web Facet version
-   * @param mavenProject
+   * Create the install configuration of the Web Facet
    * @param warSourceDirectory
-   * @param actions
-   * @param webFv
+   * @param contextRoot
    */
-  private void installWebFacet(MavenProject mavenProject, String warSourceDirectory, String contextRoot, Set<Action> actions,
-      IProjectFacetVersion webFv) {
+  private IDataModel createWebFacetConfig(String warSourceDirectory, String contextRoot) {
     IDataModel webModelCfg = DataModelFactory.createDataModel(new WebFacetInstallDataModelProvider());
     webModelCfg.setProperty(IJ2EEModuleFacetInstallDataModelProperties.CONFIG_FOLDER, warSourceDirectory);
     webModelCfg.setProperty(IWebFacetInstallDataModelProperties.CONTEXT_ROOT, contextRoot);
     webModelCfg.setProperty(IJ2EEModuleFacetInstallDataModelProperties.GENERATE_DD, false);
-    actions.add(new IFacetedProject.Action(IFacetedProject.Action.Type.INSTALL, webFv, webModelCfg));
+    return webModelCfg;
   }
 
   public void setModuleDependencies(IProject project, MavenProject mavenProject, IProgressMonitor monitor)
@@ -191,7 +189,7 @@ class WebProjectConfiguratorDelegate extends AbstractProjectConfiguratorDelegate
       return;
     }
 
-    WarPluginConfiguration config = new WarPluginConfiguration(mavenProject, project);
+    WarPluginConfiguration config = WarPluginConfiguration.get(project, mavenProject);
     WarPackagingOptions opts = new WarPackagingOptions(config);
 
     List<AbstractDependencyConfigurator> depConfigurators = ExtensionReader.readDependencyConfiguratorExtensions(projectManager, 
@@ -276,7 +274,7 @@ class WebProjectConfiguratorDelegate extends AbstractProjectConfiguratorDelegate
     //Improve skinny war support by generating the manifest classpath
     //similar to mvn eclipse:eclipse 
     //http://maven.apache.org/plugins/maven-war-plugin/examples/skinny-wars.html
-    WarPluginConfiguration config = new WarPluginConfiguration(mavenProject, project);
+    WarPluginConfiguration config = WarPluginConfiguration.get(project, mavenProject);
     WarPackagingOptions opts = new WarPackagingOptions(config);
 
     StringBuilder manifestCp = new StringBuilder();
@@ -360,6 +358,7 @@ class WebProjectConfiguratorDelegate extends AbstractProjectConfiguratorDelegate
     }
 
     String targetDir = mavenProject.getBuild().getDirectory();
+    Set<File> sharedJars = new HashSet<File>();
 
     // second pass disambiguates colliding entry file names
     iter = classpath.getEntryDescriptors().iterator();
@@ -370,12 +369,19 @@ class WebProjectConfiguratorDelegate extends AbstractProjectConfiguratorDelegate
       if (dups.contains(entry.getPath().lastSegment())) {
         File src = new File(entry.getPath().toOSString());
         String groupId = descriptor.getGroupId();
-        File dst = new File(targetDir, groupId + "-" + entry.getPath().lastSegment());
+        String fileName = groupId + "-" + entry.getPath().lastSegment();
         try {
           if (src.canRead()) {
-            if (isDifferent(src, dst)) { // uses lastModified
-              FileUtils.copyFile(src, dst);
-              dst.setLastModified(src.lastModified());
+            // identical jars are shared by all the projects of the workspace
+            File dst = getSharedJar(src, fileName);
+            if (dst != null) {
+              sharedJars.add(dst.getCanonicalFile());
+            } else {
+              dst = new File(targetDir, fileName);
+              if (isDifferent(src, dst)) { // uses lastModified
+                FileUtils.copyFile(src, dst);
+                dst.setLastModified(src.lastModified());
+              }
             }
             descriptor.setClasspathEntry(JavaCore.newLibraryEntry(Path.fromOSString(dst.getCanonicalPath()), //
                 entry.getSourceAttachmentPath(), //
@@ -391,6 +397,9 @@ class WebProjectConfiguratorDelegate extends AbstractProjectConfiguratorDelegate
       
     }
 
+    // shared jars previously used by this project may not be referenced anymore
+    SharedJarStore.setProjectJars(project, sharedJars);
+
     if(opts.isSkinnyWar()) {
       
       //writing the manifest only works when the project has been properly created
@@ -416,6 +425,19 @@ class WebProjectConfiguratorDelegate extends AbstractProjectConfiguratorDelegate
     }
   }
 
+  /**
+   * @return the copy of src in the {@link SharedJarStore}, or null if it can't be used, in which case the jar is copied
+   *         to the build directory of the project.
+   */
+  private static File getSharedJar(File src, String fileName) {
+    try {
+      return SharedJarStore.getJar(src, fileName);
+    } catch(IOException ex) {
+      MavenLogger.log("Could not store " + src + " in the shared jar store", ex);
+      return null;
+    }
+  }
+
   private static boolean isDifferent(File src, File dst) {
     if (!dst.exists()) {
       return true;
@@ -431,16 +453,19 @@ class WebProjectConfiguratorDelegate extends AbstractProjectConfiguratorDelegate
 
     //these are used in the skinny use case to decide wheter a dependencies gets 
     //referenced from the ear, or if it is (exceptionally) placed in the WEB-INF/lib
-    String[] packagingIncludes;
+    CompiledPattern[] packagingIncludes;
+
+    CompiledPattern[] packagingExcludes;
 
-    String[] packagingExcludes;
+    AntPathMatcher matcher;
 
     public WarPackagingOptions(WarPluginConfiguration config) {
 
       isAddManifestClasspath = config.isAddManifestClasspath();
 
-      packagingExcludes = config.getPackagingExcludes();
-      packagingIncludes = config.getPackagingIncludes();
+      packagingExcludes = config.getPackagingExcludePatterns();
+      packagingIncludes = config.getPackagingIncludePatterns();
+      matcher = config.getPackagingMatcher();
     }
 
     public boolean isSkinnyWar() {
@@ -484,10 +509,10 @@ class WebProjectConfiguratorDelegate extends AbstractProjectConfiguratorDelegate
 
     private boolean isExcludedFromWebInfLib(String virtualLibPath) {
 
-      AntPathMatcher matcher = new AntPathMatcher();
+      String[] pathDirs = matcher.tokenizePath(virtualLibPath);
 
-      for(String excl : packagingExcludes) {
-        if(matcher.match(excl, virtualLibPath)) {
+      for(CompiledPattern excl : packagingExcludes) {
+        if(excl.match(virtualLibPath, pathDirs)) {
 
           //stop here already, since exclusions seem to have precedence over inclusions
           //it is not documented as such for the maven war-plugin, I concluded this from experimentation
@@ -497,8 +522,8 @@ class WebProjectConfiguratorDelegate extends AbstractProjectConfiguratorDelegate
       }
 
       //so the path is not excluded, check if it is included into the war packaging
-      for(String incl : packagingIncludes) {
-        if(matcher.match(incl, virtualLibPath)) {
+      for(CompiledPattern incl : packagingIncludes) {
+        if(incl.match(virtualLibPath, pathDirs)) {
           return false;
         }
       }
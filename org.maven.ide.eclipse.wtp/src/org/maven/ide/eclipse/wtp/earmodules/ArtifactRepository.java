@@ -27,6 +27,9 @@ package org.maven.ide.eclipse.wtp.earmodules;
  * under the License.
  */
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -40,7 +43,10 @@ import org.apache.maven.artifact.Artifact;
  * @author <a href="snicoll@apache.org">Stephane Nicoll</a>
  */
 public class ArtifactRepository {
-  private final Set<Artifact> artifacts;
+  /**
+   * The artifacts, indexed by groupId:artifactId:standardType.
+   */
+  private final Map<String, Set<Artifact>> artifactsIndex;
 
   private final String mainArtifactId;
 
@@ -54,9 +60,32 @@ public class ArtifactRepository {
    */
   public ArtifactRepository(Set<Artifact> artifacts, String mainArtifactId,
       ArtifactTypeMappingService artifactTypeMappingService) {
-    this.artifacts = artifacts;
     this.mainArtifactId = mainArtifactId;
     this.artifactTypeMappingService = artifactTypeMappingService;
+    this.artifactsIndex = index(artifacts);
+  }
+
+  private Map<String, Set<Artifact>> index(Set<Artifact> artifacts) {
+    Map<String, Set<Artifact>> index = new HashMap<String, Set<Artifact>>(artifacts.size());
+    for(Artifact a : artifacts) {
+      String standardType = artifactTypeMappingService.getMappedType(a.getType());
+      if(standardType == null) {
+        //Can't be mapped to any ear module type
+        continue;
+      }
+      String key = getKey(a.getGroupId(), a.getArtifactId(), standardType);
+      Set<Artifact> candidates = index.get(key);
+      if(candidates == null) {
+        candidates = new TreeSet<Artifact>();
+        index.put(key, candidates);
+      }
+      candidates.add(a);
+    }
+    return index;
+  }
+
+  private static String getKey(String groupId, String artifactId, String type) {
+    return groupId + ":" + artifactId + ":" + type;
   }
 
   /**
@@ -78,7 +107,7 @@ public class ArtifactRepository {
     } else if(candidates.size() == 1 && classifier == null) {
       return candidates.iterator().next();
     } else if(classifier != null) {
-      for(Artifact a : artifacts) {
+      for(Artifact a : candidates) {
         if(a.getClassifier() == null && classifier.equals(mainArtifactId)) {
           return a;
         } else if(classifier.equals(a.getClassifier())) {
@@ -114,16 +143,17 @@ public class ArtifactRepository {
    * @return the artifacts or an empty set if no artifact were found
    */
   public Set<Artifact> getArtifacts(String groupId, String artifactId, String type) {
-    final Set<Artifact> result = new TreeSet<Artifact>();
-    for(Artifact a : artifacts) {
-      // If the groupId, the artifactId and if the
-      // artifact's type is known, then we have found a candidate.
-      if(a.getGroupId().equals(groupId) && a.getArtifactId().equals(artifactId)
-          && artifactTypeMappingService.isMappedToType(type, a.getType())) {
-        result.add(a);
-      }
+    if(!ArtifactTypeMappingService.isStandardArtifactType(type)) {
+      throw new IllegalStateException("Artifact type[" + type + "] is not a standard Ear artifact type["
+          + ArtifactTypeMappingService.getStandardArtifactTypes() + "]");
+    }
+    // If the groupId, the artifactId and if the
+    // artifact's type is known, then we have found a candidate.
+    Set<Artifact> candidates = artifactsIndex.get(getKey(groupId, artifactId, type));
+    if(candidates == null) {
+      return Collections.emptySet();
     }
-    return result;
+    return Collections.unmodifiableSet(candidates);
   }
 
   public Artifact resolveArtifact(String groupId, String artifactId, String type, String classifier)
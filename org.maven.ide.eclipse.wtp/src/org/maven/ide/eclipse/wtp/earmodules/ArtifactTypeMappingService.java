@@ -121,6 +121,20 @@ public class ArtifactTypeMappingService {
 
   }
 
+  /**
+   * Returns the standard type the specified <tt>type</tt> is mapped to, or null if it's neither a standard type nor a
+   * user-defined one.
+   * 
+   * @param type a type
+   * @return the standard type (ejb, jar, war, ...) for this type, or null
+   */
+  public String getMappedType(final String type) {
+    if(isStandardArtifactType(type)) {
+      return type;
+    }
+    return customMappings.get(type);
+  }
+
   /**
    * Returns the standard type for the specified <tt>type</tt>. If the specified type is already a standard type, the
    * orignal type is returned.
@@ -0,0 +1,468 @@
+/*******************************************************************************
+ * Copyright (c) 2008 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.maven.ide.eclipse.wtp.filtering;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.maven.model.Plugin;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.settings.Settings;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.StringUtils;
+import org.codehaus.plexus.util.introspection.ReflectionValueExtractor;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.maven.ide.eclipse.MavenPlugin;
+import org.maven.ide.eclipse.core.MavenLogger;
+import org.maven.ide.eclipse.wtp.DomUtils;
+import org.maven.ide.eclipse.wtp.internal.MavenWtpPlugin;
+
+
+/**
+ * Copies and filters resources in-process, without creating a Maven session. Only the common case is supported :
+ * <code>${property}</code> and <code>@property@</code> expressions, resolved from the filter files, the project
+ * properties, the system properties, the environment (<code>${env.*}</code>), the project model
+ * (<code>${project.version}</code>...), the settings (<code>${settings.*}</code>) and
+ * <code>${maven.build.timestamp}</code>, with includes/excludes. Projects configuring the maven-resources-plugin in
+ * some other way (custom delimiters, escape string, filtering hints...) must execute the mojo instead, see
+ * {@link #isSupported(MavenProject)}. So must resources referencing the Maven session (<code>${session.*}</code>), see
+ * {@link #filter(File, List, IProgressMonitor)}.
+ *
+ * @author Fred Bricon
+ */
+class NativeResourceFiltering {
+
+  private static final String RESOURCES_PLUGIN_KEY = "org.apache.maven.plugins:maven-resources-plugin";
+
+  /**
+   * maven-resources-plugin configuration elements changing the way resources are filtered.
+   */
+  private static final String[] UNSUPPORTED_CONFIGURATION = {"delimiters", "useDefaultDelimiters", "escapeString",
+      "mavenFilteringHints", "filters", "supportMultiLineFiltering"};
+
+  private static final String[] DEFAULT_NON_FILTERED_EXTENSIONS = {"jpg", "jpeg", "gif", "bmp", "png"};
+
+  /**
+   * Number of bytes checked for NUL characters to detect binary files.
+   */
+  private static final int BINARY_CHECK_LENGTH = 8000;
+
+  private static final String BUILD_TIMESTAMP = "maven.build.timestamp";
+
+  private static final String DEFAULT_BUILD_TIMESTAMP_FORMAT = "yyyyMMdd-HHmm";
+
+  private final MavenProject mavenProject;
+
+  private final Properties filterProperties;
+
+  private final Charset charset;
+
+  private final Set<String> nonFilteredExtensions;
+
+  private final boolean escapeWindowsPaths;
+
+  private final String buildTimestamp;
+
+  private Settings settings;
+
+  /**
+   * An expression found in a filtered file that can only be resolved by the maven-resources-plugin.
+   */
+  private String unsupportedExpression;
+
+  NativeResourceFiltering(MavenProject mavenProject, List<String> filters) throws CoreException {
+    this.mavenProject = mavenProject;
+    Xpp3Dom configuration = getResourcesPluginConfiguration(mavenProject);
+
+    String encoding = DomUtils.getChildValue(configuration, "encoding");
+    if(encoding == null || encoding.startsWith("${")) {
+      encoding = mavenProject.getProperties().getProperty("project.build.sourceEncoding");
+    }
+    try {
+      this.charset = encoding == null ? Charset.defaultCharset() : Charset.forName(encoding);
+    } catch(IllegalArgumentException ex) {
+      //Illegal or unsupported charset name
+      throw newCoreException("Unsupported encoding " + encoding, ex);
+    }
+
+    nonFilteredExtensions = new HashSet<String>(Arrays.asList(DEFAULT_NON_FILTERED_EXTENSIONS));
+    Xpp3Dom extensions = configuration == null ? null : configuration.getChild("nonFilteredFileExtensions");
+    if(extensions != null) {
+      for(Xpp3Dom extension : extensions.getChildren()) {
+        if(extension.getValue() != null) {
+          nonFilteredExtensions.add(extension.getValue().trim().toLowerCase(Locale.ENGLISH));
+        }
+      }
+    }
+
+    String escape = DomUtils.getChildValue(configuration, "escapeWindowsPaths");
+    escapeWindowsPaths = escape == null || Boolean.valueOf(escape).booleanValue();
+
+    String timestampFormat = mavenProject.getProperties().getProperty(BUILD_TIMESTAMP + ".format",
+        DEFAULT_BUILD_TIMESTAMP_FORMAT);
+    try {
+      buildTimestamp = new SimpleDateFormat(timestampFormat).format(new Date());
+    } catch(IllegalArgumentException ex) {
+      throw newCoreException("Invalid " + BUILD_TIMESTAMP + ".format " + timestampFormat, ex);
+    }
+
+    filterProperties = loadFilterProperties(filters);
+  }
+
+  /**
+   * @return true if the resources of the project can be filtered in-process.
+   */
+  static boolean isSupported(MavenProject mavenProject) {
+    Xpp3Dom configuration = getResourcesPluginConfiguration(mavenProject);
+    if(configuration == null) {
+      return true;
+    }
+    for(String name : UNSUPPORTED_CONFIGURATION) {
+      if(configuration.getChild(name) != null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Xpp3Dom getResourcesPluginConfiguration(MavenProject mavenProject) {
+    Plugin plugin = mavenProject.getPlugin(RESOURCES_PLUGIN_KEY);
+    return plugin == null ? null : (Xpp3Dom) plugin.getConfiguration();
+  }
+
+  /**
+   * Properties are resolved the same way maven-filtering does : the filter files first, overridden by the project
+   * properties, then by the system properties.
+   */
+  private Properties loadFilterProperties(List<String> filters) throws CoreException {
+    Properties baseProperties = new Properties();
+    baseProperties.putAll(mavenProject.getProperties());
+    baseProperties.putAll(System.getProperties());
+
+    Properties properties = new Properties();
+    for(String filter : filters) {
+      File filterFile = getFile(filter);
+      Properties fileProperties = new Properties();
+      try {
+        InputStream is = new FileInputStream(filterFile);
+        try {
+          fileProperties.load(is);
+        } finally {
+          is.close();
+        }
+      } catch(IOException ex) {
+        throw newCoreException("Error loading property file " + filterFile, ex);
+      }
+      //Filter files can reference project properties and properties from previous files
+      Properties resolutionProperties = new Properties();
+      resolutionProperties.putAll(baseProperties);
+      resolutionProperties.putAll(properties);
+      resolutionProperties.putAll(fileProperties);
+      for(Object key : fileProperties.keySet()) {
+        String name = (String) key;
+        properties.setProperty(name, interpolate(fileProperties.getProperty(name), resolutionProperties,
+            new HashSet<String>()));
+      }
+    }
+    properties.putAll(baseProperties);
+    return properties;
+  }
+
+  /**
+   * Copies the resources to the output directory, filtering those marked as such.
+   *
+   * @return false if a filtered file references the Maven session : the maven-resources-plugin must be executed
+   *         instead.
+   */
+  boolean filter(File outputDirectory, List<Xpp3Dom> resources, IProgressMonitor monitor) throws CoreException {
+    for(Xpp3Dom resource : resources) {
+      String directory = DomUtils.getChildValue(resource, "directory");
+      if(StringUtils.isEmpty(directory)) {
+        continue;
+      }
+      File resourceDirectory = getFile(directory);
+      if(!resourceDirectory.isDirectory()) {
+        continue;
+      }
+      File targetDirectory = outputDirectory;
+      String targetPath = DomUtils.getChildValue(resource, "targetPath");
+      if(StringUtils.isNotEmpty(targetPath)) {
+        targetDirectory = new File(outputDirectory, targetPath);
+      }
+      boolean filtering = DomUtils.getBooleanChildValue(resource, "filtering");
+
+      DirectoryScanner scanner = new DirectoryScanner();
+      scanner.setBasedir(resourceDirectory);
+      List<String> includes = getPatterns(resource, "includes");
+      if(!includes.isEmpty()) {
+        scanner.setIncludes(includes.toArray(new String[includes.size()]));
+      }
+      List<String> excludes = getPatterns(resource, "excludes");
+      if(!excludes.isEmpty()) {
+        scanner.setExcludes(excludes.toArray(new String[excludes.size()]));
+      }
+      scanner.addDefaultExcludes();
+      scanner.scan();
+
+      try {
+        for(String name : scanner.getIncludedFiles()) {
+          if(monitor.isCanceled()) {
+            throw new OperationCanceledException();
+          }
+          File source = new File(resourceDirectory, name);
+          File target = new File(targetDirectory, name);
+          target.getParentFile().mkdirs();
+          if(filtering && isFilterable(source)) {
+            filterFile(source, target);
+            if(unsupportedExpression != null) {
+              return false;
+            }
+          } else {
+            copyFile(source, target);
+          }
+        }
+      } catch(IOException ex) {
+        throw newCoreException("Error filtering " + resourceDirectory, ex);
+      }
+    }
+    return true;
+  }
+
+  private boolean isFilterable(File file) throws IOException {
+    String name = file.getName();
+    int dot = name.lastIndexOf('.');
+    if(dot > -1 && nonFilteredExtensions.contains(name.substring(dot + 1).toLowerCase(Locale.ENGLISH))) {
+      return false;
+    }
+    //Skip binary files : they contain NUL bytes, text files don't
+    FileInputStream is = new FileInputStream(file);
+    try {
+      FileChannel channel = is.getChannel();
+      ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), BINARY_CHECK_LENGTH));
+      while(buffer.hasRemaining() && channel.read(buffer) > -1) {
+        //read the beginning of the file
+      }
+      buffer.flip();
+      while(buffer.hasRemaining()) {
+        if(buffer.get() == 0) {
+          return false;
+        }
+      }
+      return true;
+    } finally {
+      is.close();
+    }
+  }
+
+  private static void copyFile(File source, File target) throws IOException {
+    FileChannel in = new FileInputStream(source).getChannel();
+    try {
+      FileChannel out = new FileOutputStream(target).getChannel();
+      try {
+        long size = in.size();
+        long position = 0;
+        while(position < size) {
+          position += in.transferTo(position, size - position, out);
+        }
+      } finally {
+        out.close();
+      }
+    } finally {
+      in.close();
+    }
+    target.setLastModified(source.lastModified());
+  }
+
+  /**
+   * Filters a file line by line : expressions can't contain whitespaces, so they never span several lines.
+   */
+  private void filterFile(File source, File target) throws IOException {
+    Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(source), charset));
+    try {
+      Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(target), charset));
+      try {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while((c = reader.read()) > -1) {
+          line.append((char) c);
+          if(c == '\n') {
+            writer.write(interpolate(line.toString(), filterProperties, new HashSet<String>()));
+            line.setLength(0);
+          }
+        }
+        writer.write(interpolate(line.toString(), filterProperties, new HashSet<String>()));
+      } finally {
+        writer.close();
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Replaces the <code>${expression}</code> and <code>@expression@</code> occurrences of a text. Unresolved
+   * expressions are left untouched.
+   */
+  private String interpolate(String text, Properties properties, Set<String> resolving) {
+    if(text.indexOf("${") < 0 && text.indexOf('@') < 0) {
+      return text;
+    }
+    StringBuilder sb = new StringBuilder(text.length());
+    int length = text.length();
+    int i = 0;
+    while(i < length) {
+      char c = text.charAt(i);
+      int end = -1;
+      int expressionStart = -1;
+      if(c == '$' && i + 1 < length && text.charAt(i + 1) == '{') {
+        expressionStart = i + 2;
+        end = text.indexOf('}', expressionStart);
+      } else if(c == '@') {
+        expressionStart = i + 1;
+        end = text.indexOf('@', expressionStart);
+      }
+      if(end > expressionStart) {
+        String expression = text.substring(expressionStart, end);
+        String value = isExpression(expression) ? resolve(expression, properties, resolving) : null;
+        if(value != null) {
+          sb.append(value);
+          i = end + 1;
+          continue;
+        }
+      }
+      sb.append(c);
+      i++ ;
+    }
+    return sb.toString();
+  }
+
+  private static boolean isExpression(String expression) {
+    for(int i = 0; i < expression.length(); i++ ) {
+      char c = expression.charAt(i);
+      if(Character.isWhitespace(c) || c == '{' || c == '@') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String resolve(String expression, Properties properties, Set<String> resolving) {
+    if(!resolving.add(expression)) {
+      //Cyclic reference
+      return null;
+    }
+    try {
+      String value = properties.getProperty(expression);
+      if(value == null) {
+        if(expression.startsWith("project.") || expression.startsWith("pom.")) {
+          value = evaluate(expression, mavenProject);
+        } else if(expression.startsWith("env.")) {
+          value = System.getenv(expression.substring("env.".length()));
+        } else if(expression.startsWith("settings.")) {
+          value = evaluate(expression, getSettings());
+        } else if(expression.startsWith("session.")) {
+          unsupportedExpression = expression;
+        } else if(BUILD_TIMESTAMP.equals(expression)) {
+          value = buildTimestamp;
+        } else if("basedir".equals(expression)) {
+          value = mavenProject.getBasedir().getAbsolutePath();
+        }
+      }
+      if(value == null) {
+        return null;
+      }
+      value = interpolate(value, properties, resolving);
+      if(escapeWindowsPaths && value.length() > 2 && Character.isLetter(value.charAt(0)) && value.charAt(1) == ':'
+          && value.charAt(2) == '\\') {
+        value = value.replace("\\", "\\\\");
+      }
+      return value;
+    } finally {
+      resolving.remove(expression);
+    }
+  }
+
+  /**
+   * Evaluates an expression like <code>project.build.finalName</code> against its root object.
+   */
+  private static String evaluate(String expression, Object root) {
+    if(root == null) {
+      return null;
+    }
+    try {
+      Object object = ReflectionValueExtractor.evaluate(expression, root);
+      return object == null ? null : object.toString();
+    } catch(Exception ex) {
+      //unresolved
+      return null;
+    }
+  }
+
+  private Settings getSettings() {
+    if(settings == null) {
+      try {
+        settings = MavenPlugin.getDefault().getMaven().getSettings();
+      } catch(CoreException ex) {
+        MavenLogger.log(ex);
+      }
+    }
+    return settings;
+  }
+
+  private static List<String> getPatterns(Xpp3Dom resource, String name) {
+    List<String> patterns = new ArrayList<String>();
+    Xpp3Dom patternsNode = resource.getChild(name);
+    if(patternsNode != null) {
+      for(Xpp3Dom patternNode : patternsNode.getChildren()) {
+        if(StringUtils.isNotBlank(patternNode.getValue())) {
+          patterns.add(patternNode.getValue().trim());
+        }
+      }
+    }
+    return patterns;
+  }
+
+  private File getFile(String path) {
+    File file = new File(path);
+    if(!file.isAbsolute()) {
+      file = new File(mavenProject.getBasedir(), path);
+    }
+    return file;
+  }
+
+  private static CoreException newCoreException(String message, Throwable cause) {
+    return new CoreException(new Status(IStatus.ERROR, MavenWtpPlugin.ID, message, cause));
+  }
+}
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2008 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.maven.ide.eclipse.wtp.filtering;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.lifecycle.MavenExecutionPlan;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.descriptor.MojoDescriptor;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.maven.ide.eclipse.MavenPlugin;
+import org.maven.ide.eclipse.project.IMavenProjectFacade;
+import org.maven.ide.eclipse.project.MavenProjectManager;
+
+
+/**
+ * The Maven execution request, copy-resources mojo descriptor and base mojo configuration needed to filter the
+ * resources of a project. They're prepared once and reused by subsequent builds, until pom.xml changes, the Maven
+ * project is reloaded or the project is removed. A prepared execution is never modified : each execution gets its own
+ * session, so only its own errors are reported, and its own copy of the mojo configuration.
+ *
+ * @author Fred Bricon
+ */
+public class PreparedFilteringExecution {
+
+  private static final String COPY_RESOURCES_GOAL = "copy-resources";
+
+  private static final Map<IProject, PreparedFilteringExecution> cache = new HashMap<IProject, PreparedFilteringExecution>();
+
+  private final MavenProject mavenProject;
+
+  private final long pomModificationStamp;
+
+  private final MavenExecutionRequest request;
+
+  private final MojoDescriptor mojoDescriptor;
+
+  private final String executionId;
+
+  private final Xpp3Dom baseConfiguration;
+
+  private PreparedFilteringExecution(MavenProject mavenProject, long pomModificationStamp,
+      MavenExecutionRequest request, MojoDescriptor mojoDescriptor, String executionId, Xpp3Dom baseConfiguration) {
+    this.mavenProject = mavenProject;
+    this.pomModificationStamp = pomModificationStamp;
+    this.request = request;
+    this.mojoDescriptor = mojoDescriptor;
+    this.executionId = executionId;
+    this.baseConfiguration = baseConfiguration;
+  }
+
+  /**
+   * @return the prepared execution for this project, created if needed, or null if the project's build doesn't use
+   *         the maven-resources-plugin.
+   */
+  static PreparedFilteringExecution get(IMavenProjectFacade facade, IProgressMonitor monitor) throws CoreException {
+    IProject project = facade.getProject();
+    MavenProject mavenProject = facade.getMavenProject();
+    long pomModificationStamp = facade.getPom().getModificationStamp();
+    synchronized(cache) {
+      PreparedFilteringExecution prepared = cache.get(project);
+      if(prepared != null && prepared.mavenProject == mavenProject
+          && prepared.pomModificationStamp == pomModificationStamp) {
+        return prepared;
+      }
+    }
+
+    MavenExecutionPlan executionPlan = facade.getExecutionPlan(monitor);
+    MojoExecution resourcesExecution = ResourceFilteringBuildParticipant.getExecution(executionPlan,
+        "maven-resources-plugin");
+    if(resourcesExecution == null) {
+      return null;
+    }
+
+    MavenProjectManager projectManager = MavenPlugin.getDefault().getMavenProjectManager();
+    MavenExecutionRequest request = projectManager.createExecutionRequest(facade.getPom(),
+        facade.getResolverConfiguration(), monitor);
+    request.setRecursive(false);
+    request.setOffline(true);
+
+    Xpp3Dom baseConfiguration = resourcesExecution.getConfiguration() == null ? new Xpp3Dom("configuration")
+        : new Xpp3Dom(resourcesExecution.getConfiguration());
+    removeChildren(baseConfiguration, "resources");
+    removeChildren(baseConfiguration, "overwrite");
+    removeChildren(baseConfiguration, "outputDirectory");
+
+    PreparedFilteringExecution prepared = new PreparedFilteringExecution(mavenProject, pomModificationStamp, request,
+        getCopyResourcesDescriptor(resourcesExecution), resourcesExecution.getExecutionId(), baseConfiguration);
+    synchronized(cache) {
+      cache.put(project, prepared);
+    }
+    return prepared;
+  }
+
+  /**
+   * Forgets the prepared execution of a project, i.e. when the project is cleaned or removed.
+   */
+  public static void remove(IProject project) {
+    synchronized(cache) {
+      cache.remove(project);
+    }
+  }
+
+  /**
+   * Uses the copy-resources goal of the maven-resources-plugin used by the project.
+   */
+  private static MojoDescriptor getCopyResourcesDescriptor(MojoExecution resourcesExecution) {
+    MojoDescriptor mojoDescriptor = resourcesExecution.getMojoDescriptor();
+    PluginDescriptor pluginDescriptor = mojoDescriptor.getPluginDescriptor();
+    MojoDescriptor copyResourcesDescriptor = pluginDescriptor == null ? null : pluginDescriptor
+        .getMojo(COPY_RESOURCES_GOAL);
+    if(copyResourcesDescriptor == null) {
+      //Fall back on hacking the goal of the descriptor found in the execution plan
+      mojoDescriptor.setGoal(COPY_RESOURCES_GOAL);
+      copyResourcesDescriptor = mojoDescriptor;
+    }
+    return copyResourcesDescriptor;
+  }
+
+  private static void removeChildren(Xpp3Dom parent, String name) {
+    for(int i = parent.getChildCount() - 1; i >= 0; i-- ) {
+      if(name.equals(parent.getChild(i).getName())) {
+        parent.removeChild(i);
+      }
+    }
+  }
+
+  /**
+   * Creates a new session, with an empty execution result.
+   */
+  MavenSession newSession() throws CoreException {
+    return MavenPlugin.getDefault().getMaven().createSession(request, mavenProject);
+  }
+
+  /**
+   * Creates a new copy-resources execution, copying the given resources to the target folder.
+   */
+  MojoExecution newExecution(IPath targetFolder, List<Xpp3Dom> resources) {
+    Xpp3Dom configuration = new Xpp3Dom(baseConfiguration);
+
+    Xpp3Dom resourcesNode = new Xpp3Dom("resources");
+    for(Xpp3Dom resource : resources) {
+      resourcesNode.addChild(new Xpp3Dom(resource));
+    }
+    configuration.addChild(resourcesNode);
+
+    Xpp3Dom overwriteNode = new Xpp3Dom("overwrite");
+    overwriteNode.setValue(Boolean.TRUE.toString());
+    configuration.addChild(overwriteNode);
+
+    Xpp3Dom outPutDirNode = new Xpp3Dom("outputDirectory");
+    outPutDirNode.setValue(targetFolder.toPortableString());
+    configuration.addChild(outPutDirNode);
+
+    MojoExecution execution = new MojoExecution(mojoDescriptor, executionId);
+    execution.setConfiguration(configuration);
+    return execution;
+  }
+}
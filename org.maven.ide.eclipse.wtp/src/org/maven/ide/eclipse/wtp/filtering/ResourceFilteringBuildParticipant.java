@@ -8,24 +8,28 @@
 
 package org.maven.ide.eclipse.wtp.filtering;
 
+import java.io.File;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
-import org.apache.maven.execution.MavenExecutionRequest;
 import org.apache.maven.execution.MavenExecutionResult;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.lifecycle.MavenExecutionPlan;
 import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.util.StringUtils;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
 import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -38,8 +42,7 @@ import org.maven.ide.eclipse.core.MavenLogger;
 import org.maven.ide.eclipse.embedder.IMaven;
 import org.maven.ide.eclipse.internal.project.GenericBuildParticipant;
 import org.maven.ide.eclipse.project.IMavenProjectFacade;
-import org.maven.ide.eclipse.project.MavenProjectManager;
-import org.maven.ide.eclipse.project.ResolverConfiguration;
+import org.maven.ide.eclipse.wtp.DomUtils;
 import org.maven.ide.eclipse.wtp.internal.MavenWtpPlugin;
 
 /**
@@ -49,10 +52,12 @@ import org.maven.ide.eclipse.wtp.internal.MavenWtpPlugin;
  */
 public class ResourceFilteringBuildParticipant extends GenericBuildParticipant {
 
+  private static final int CONTENT_CHANGES = IResourceDelta.CONTENT | IResourceDelta.REPLACED | IResourceDelta.ENCODING;
+
   public Set<IProject> build(int kind, IProgressMonitor monitor) throws Exception {
     IMavenProjectFacade facade = getMavenProjectFacade();
     ResourceFilteringConfiguration configuration = ResourceFilteringConfigurationFactory.getConfiguration(facade);
-    if (configuration == null || configuration.getResources() == null) {
+    if (configuration == null || configuration.getResources() == null || configuration.getResources().isEmpty()) {
       //Nothing to filter
       return null;
     }
@@ -61,19 +66,158 @@ public class ResourceFilteringBuildParticipant extends GenericBuildParticipant {
     List<Xpp3Dom> resources = configuration.getResources();
     //FIXME assuming path relative to current project
     IPath targetFolder = configuration.getTargetFolder();
-    
-    if (hasResourcesChanged(facade, getDelta(project), resources)) {
+    IResourceDelta delta = getDelta(project);
+
+    boolean fullFiltering = delta == null || requiresFullFiltering(facade, delta, configuration.getFilters());
+    if (fullFiltering) {
       MavenLogger.log("Executing resource filtering for "+project.getName());
-      executeCopyResources(facade, targetFolder, resources, monitor);  
-      //FIXME deal with absolute paths
-      IFolder destFolder = project.getFolder(targetFolder);
-      if (destFolder.exists()){
-        destFolder.refreshLocal(IResource.DEPTH_INFINITE, monitor);
+      executeCopyResources(facade, configuration, resources, monitor);
+      refreshTargetFolder(project, targetFolder, monitor);
+    } else {
+      List<Xpp3Dom> changedResources = getChangedResources(facade, delta, resources, targetFolder, monitor);
+      if (!changedResources.isEmpty()) {
+        MavenLogger.log("Executing incremental resource filtering for "+project.getName());
+        executeCopyResources(facade, configuration, changedResources, monitor);
+        refreshTargetFolder(project, targetFolder, monitor);
       }
-    }    
+    }
     return null;
   
   }
+
+  private void refreshTargetFolder(IProject project, IPath targetFolder, IProgressMonitor monitor)
+      throws CoreException {
+    //FIXME deal with absolute paths
+    IFolder destFolder = project.getFolder(targetFolder);
+    if (destFolder.exists()){
+      destFolder.refreshLocal(IResource.DEPTH_INFINITE, monitor);
+    }
+  }
+
+  /**
+   * All the resources need to be filtered again when pom.xml or one of the filter files changed.
+   */
+  private boolean requiresFullFiltering(IMavenProjectFacade facade, IResourceDelta delta, List<String> filters) {
+    if (delta.findMember(facade.getPom().getProjectRelativePath()) != null) {
+      return true;
+    }
+    IPath projectLocation = facade.getProject().getLocation();
+    for (String filter : filters) {
+      IPath filterPath = new Path(filter);
+      if (filterPath.isAbsolute() && projectLocation != null) {
+        filterPath = filterPath.makeRelativeTo(projectLocation);
+      }
+      if (!filterPath.isAbsolute() && delta.findMember(filterPath) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Deletes the filtered copies of the removed files and returns a copy of each resource having changed files,
+   * restricted to these files.
+   * <p>
+   * Several resources can be copied to the same location, the last one wins. When a file is removed, the same file of
+   * the other resources is filtered again instead of being deleted. When a file changes, the same file of the
+   * following resources is filtered again, so it's still copied last.
+   * </p>
+   */
+  private List<Xpp3Dom> getChangedResources(IMavenProjectFacade facade, IResourceDelta delta, List<Xpp3Dom> resources,
+      IPath targetFolder, IProgressMonitor monitor) throws CoreException {
+    IProject project = facade.getProject();
+    List<ChangedResource> changes = new ArrayList<ChangedResource>(resources.size());
+    for (Xpp3Dom resource : resources) {
+      ChangedResource change = new ChangedResource(resource, getResourceFolder(facade, resource), targetFolder);
+      IResourceDelta member = change.folder == null ? null : delta.findMember(change.folder);
+      if (member != null) {
+        collectChangedFiles(member, change.folder.segmentCount(), change.changedFiles, change.removedFiles);
+      }
+      changes.add(change);
+    }
+
+    IPath projectLocation = project.getLocation();
+    for (int i = 0; i < changes.size(); i++) {
+      ChangedResource change = changes.get(i);
+      for (String changedFile : change.changedFiles) {
+        if (change.patterns.isIncluded(changedFile)) {
+          change.filesToFilter.add(changedFile);
+          IPath output = change.getOutputPath(changedFile);
+          for (ChangedResource next : changes.subList(i + 1, changes.size())) {
+            next.filterAgain(output, projectLocation);
+          }
+        }
+      }
+      for (String removedFile : change.removedFiles) {
+        if (!change.patterns.isIncluded(removedFile)) {
+          continue;
+        }
+        IPath output = change.getOutputPath(removedFile);
+        boolean providedByOthers = false;
+        for (ChangedResource other : changes) {
+          if (other != change && other.filterAgain(output, projectLocation)) {
+            providedByOthers = true;
+          }
+        }
+        IFile outputFile = project.getFile(output);
+        if (!providedByOthers && outputFile.exists()) {
+          outputFile.delete(true, monitor);
+        }
+      }
+    }
+
+    List<Xpp3Dom> changedResources = new ArrayList<Xpp3Dom>();
+    for (ChangedResource change : changes) {
+      if (change.filesToFilter.isEmpty()) {
+        continue;
+      }
+      Xpp3Dom includesNode = new Xpp3Dom("includes");
+      for (String file : change.filesToFilter) {
+        Xpp3Dom includeNode = new Xpp3Dom("include");
+        includeNode.setValue(file);
+        includesNode.addChild(includeNode);
+      }
+      Xpp3Dom changedResource = new Xpp3Dom(change.resource);
+      removeChild(changedResource, "includes");
+      changedResource.addChild(includesNode);
+      changedResources.add(changedResource);
+    }
+    return changedResources;
+  }
+
+  private static void collectChangedFiles(IResourceDelta folderDelta, final int folderSegmentCount,
+      final List<String> changedFiles, final List<String> removedFiles) throws CoreException {
+    folderDelta.accept(new IResourceDeltaVisitor() {
+      public boolean visit(IResourceDelta delta) {
+        if (delta.getResource().getType() != IResource.FILE) {
+          return true;
+        }
+        String path = delta.getProjectRelativePath().removeFirstSegments(folderSegmentCount).toPortableString();
+        switch(delta.getKind()) {
+          case IResourceDelta.REMOVED:
+            removedFiles.add(path);
+            break;
+          case IResourceDelta.ADDED:
+            changedFiles.add(path);
+            break;
+          case IResourceDelta.CHANGED:
+            if ((delta.getFlags() & CONTENT_CHANGES) != 0) {
+              changedFiles.add(path);
+            }
+            break;
+        }
+        return false;
+      }
+    });
+  }
+
+  private static void removeChild(Xpp3Dom parent, String name) {
+    for (int i = parent.getChildCount() - 1; i >= 0; i--) {
+      if (name.equals(parent.getChild(i).getName())) {
+        parent.removeChild(i);
+      }
+    }
+  }
   
   /* (non-Javadoc)
    * @see org.maven.ide.eclipse.project.configurator.AbstractBuildParticipant#clean(org.eclipse.core.runtime.IProgressMonitor)
@@ -87,6 +231,7 @@ public class ResourceFilteringBuildParticipant extends GenericBuildParticipant {
     }
 
     IProject project = facade.getProject();
+    PreparedFilteringExecution.remove(project);
     IPath targetFolderPath = configuration.getTargetFolder();
     IFolder targetFolder = project.getFolder(targetFolderPath);
     if (targetFolder.exists()) {
@@ -101,107 +246,62 @@ public class ResourceFilteringBuildParticipant extends GenericBuildParticipant {
   }
   
   /**
-   * @param mavenProject
-   * @param iResourceDelta 
-   * @param resources
-   * @return
+   * @return the project relative path of the resource directory, or null.
    */
-  private boolean hasResourcesChanged(IMavenProjectFacade facade, IResourceDelta delta, List<Xpp3Dom> resources) {
-    if (resources == null || resources.isEmpty()){
-      return false;
-    }
-      
-    Set<IPath> resourcePaths = getResourcePaths(facade, resources);
-  
-    if(delta == null) {
-      return !resourcePaths.isEmpty();
-    }
-  
-    for(IPath resourcePath : resourcePaths) {
-      IResourceDelta member = delta.findMember(resourcePath);
-      //XXX deal with member kind/flags
-      if(member != null) {
-          return true; 
-          //we need to deal with superceded resources on the maven level
-      }
-    }
-  
-    return false;
-  }
-
-  
-  private Set<IPath> getResourcePaths(IMavenProjectFacade facade, List<Xpp3Dom> resources) {
-    Set<IPath> resourcePaths = new LinkedHashSet<IPath>();
-    for(Xpp3Dom resource : resources) {
-      IPath folder= null;
-      Xpp3Dom xpp3Directory = resource.getChild("directory");
-      if (xpp3Directory != null)
-      {
-        String dir = xpp3Directory.getValue();
-        if (StringUtils.isNotEmpty(dir)){
-          IPath dirPath = new Path(dir);
-          folder = dirPath.makeRelativeTo(facade.getProject().getLocation());          
+  private IPath getResourceFolder(IMavenProjectFacade facade, Xpp3Dom resource) {
+    IPath folder= null;
+    Xpp3Dom xpp3Directory = resource.getChild("directory");
+    if (xpp3Directory != null)
+    {
+      String dir = xpp3Directory.getValue();
+      if (StringUtils.isNotEmpty(dir)){
+        folder = new Path(dir);
+        if (folder.isAbsolute()) {
+          //Only the directories inside the project can be found in the resource delta
+          IPath projectLocation = facade.getProject().getLocation();
+          if (projectLocation != null && projectLocation.isPrefixOf(folder)) {
+            folder = folder.makeRelativeTo(projectLocation);
+          } else {
+            folder = null;
+          }
         }
       }
-      if(folder != null && !folder.isEmpty()) {
-        resourcePaths.add(folder);
-      }
-    }
-    if (!resourcePaths.isEmpty()) {
-      //Filtering is triggered in case a change in pom.xml has modified the resource list 
-      resourcePaths.add(facade.getPom().getProjectRelativePath());
     }
-    return resourcePaths;
+    return (folder == null || folder.isEmpty()) ? null : folder;
   }
   
   /**
+   * Copies and filters the resources in-process when possible, or executes the maven-resources-plugin.
+   * 
    * @param facade
-   * @param project 
-   * @param targetFolder
+   * @param configuration
    * @param resources
    * @param monitor 
    * @throws CoreException 
    */
-  private void executeCopyResources(IMavenProjectFacade facade, IPath targetFolder, List<Xpp3Dom> resources, IProgressMonitor monitor) throws CoreException {
+  private void executeCopyResources(IMavenProjectFacade facade, ResourceFilteringConfiguration configuration,
+      List<Xpp3Dom> resources, IProgressMonitor monitor) throws CoreException {
 
-    MavenExecutionPlan executionPlan = facade.getExecutionPlan(monitor);
-    MojoExecution copyFilteredResourcesMojo = getExecution(executionPlan, "maven-resources-plugin");
+    IPath targetFolder = configuration.getTargetFolder();
+    MavenProject mavenProject = facade.getMavenProject();
+    if (NativeResourceFiltering.isSupported(mavenProject)) {
+      //FIXME deal with absolute paths
+      File outputDirectory = facade.getProject().getFolder(targetFolder).getLocation().toFile();
+      if (new NativeResourceFiltering(mavenProject, configuration.getFilters()).filter(outputDirectory, resources,
+          monitor)) {
+        return;
+      }
+      //Some resources need a Maven session, let the maven-resources-plugin filter them
+    }
 
-    if (copyFilteredResourcesMojo == null) return;
+    PreparedFilteringExecution prepared = PreparedFilteringExecution.get(facade, monitor);
+    if (prepared == null) return;
 
-    Xpp3Dom  configuration = copyFilteredResourcesMojo.getConfiguration();
-    
-    Xpp3Dom  resourcesNode = new Xpp3Dom("resources");
-    for (Xpp3Dom resource : resources)
-    {
-      resourcesNode.addChild(resource);
-    }
-    configuration.addChild(resourcesNode);
-
-    Boolean overwrite = Boolean.TRUE;
-    Xpp3Dom  overwriteNode = new Xpp3Dom("overwrite");
-    overwriteNode.setValue(overwrite.toString());
-    configuration.addChild(overwriteNode);
-      
-        
-    Xpp3Dom  outPutDirNode = new Xpp3Dom("outputDirectory");
-    outPutDirNode.setValue(targetFolder.toPortableString());
-    configuration.addChild(outPutDirNode);
-    
-    MavenProjectManager projectManager = MavenPlugin.getDefault().getMavenProjectManager();
-
-    //Create a maven request + session
-    IMaven maven = MavenPlugin.getDefault().getMaven();
-    ResolverConfiguration resolverConfig = facade.getResolverConfiguration();
-    
-    MavenExecutionRequest request = projectManager.createExecutionRequest(facade.getPom(), resolverConfig, monitor);
-    request.setRecursive(false);
-    request.setOffline(true);
-    MavenSession session = maven.createSession(request, facade.getMavenProject());
+    MavenSession session = prepared.newSession();
 
     //Execute our hacked mojo 
-    copyFilteredResourcesMojo.getMojoDescriptor().setGoal("copy-resources");
-    maven.execute(session, copyFilteredResourcesMojo, monitor);
+    IMaven maven = MavenPlugin.getDefault().getMaven();
+    maven.execute(session, prepared.newExecution(targetFolder, resources), monitor);
 
     logErrors(session.getResult(), facade.getProject().getName());  
   }
@@ -223,7 +323,7 @@ public class ResourceFilteringBuildParticipant extends GenericBuildParticipant {
 
 
   
-  private MojoExecution getExecution(MavenExecutionPlan executionPlan, String artifactId) throws CoreException {
+  static MojoExecution getExecution(MavenExecutionPlan executionPlan, String artifactId) throws CoreException {
     for(MojoExecution execution : getMojoExecutions(executionPlan)) {
       if(artifactId.equals(execution.getArtifactId()) ) {
         return execution;
@@ -232,7 +332,7 @@ public class ResourceFilteringBuildParticipant extends GenericBuildParticipant {
     return null;
   }
 
-  private Collection<MojoExecution> getMojoExecutions(MavenExecutionPlan executionPlan) throws CoreException {
+  private static Collection<MojoExecution> getMojoExecutions(MavenExecutionPlan executionPlan) throws CoreException {
     Collection<MojoExecution> mojoExecutions;
     try {
       mojoExecutions = executionPlan.getMojoExecutions();
@@ -256,4 +356,55 @@ public class ResourceFilteringBuildParticipant extends GenericBuildParticipant {
     }
     return null;
   }
+
+  /**
+   * The files of a resource to filter during an incremental build.
+   */
+  private static class ChangedResource {
+
+    final Xpp3Dom resource;
+
+    /** project relative path of the resource directory, or null */
+    final IPath folder;
+
+    /** project relative path of the folder the resource is copied to */
+    final IPath outputFolder;
+
+    final ResourcePatterns patterns;
+
+    final List<String> changedFiles = new ArrayList<String>();
+
+    final List<String> removedFiles = new ArrayList<String>();
+
+    final Set<String> filesToFilter = new LinkedHashSet<String>();
+
+    ChangedResource(Xpp3Dom resource, IPath folder, IPath targetFolder) {
+      this.resource = resource;
+      this.folder = folder;
+      String targetPath = DomUtils.getChildValue(resource, "targetPath");
+      this.outputFolder = StringUtils.isNotEmpty(targetPath) ? targetFolder.append(targetPath) : targetFolder;
+      this.patterns = new ResourcePatterns(resource);
+    }
+
+    IPath getOutputPath(String file) {
+      return outputFolder.append(file);
+    }
+
+    /**
+     * Filters the file of this resource copied to output again, if there's one.
+     *
+     * @return true if this resource copies an existing file to output.
+     */
+    boolean filterAgain(IPath output, IPath projectLocation) {
+      if (folder == null || projectLocation == null || !outputFolder.isPrefixOf(output)) {
+        return false;
+      }
+      String file = output.removeFirstSegments(outputFolder.segmentCount()).toPortableString();
+      if (!patterns.isIncluded(file) || !projectLocation.append(folder).append(file).toFile().isFile()) {
+        return false;
+      }
+      filesToFilter.add(file);
+      return true;
+    }
+  }
 }
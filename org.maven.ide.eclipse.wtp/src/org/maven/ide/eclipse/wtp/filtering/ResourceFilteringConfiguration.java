@@ -24,4 +24,9 @@ public interface ResourceFilteringConfiguration {
   
   //FIXME return List<org.apache.maven.model.Resource> instead
   List<Xpp3Dom> getResources();
+
+  /**
+   * @return the paths of the filter property files used to filter the resources, never null.
+   */
+  List<String> getFilters();
 }
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2008 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.maven.ide.eclipse.wtp.filtering;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.StringUtils;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.maven.ide.eclipse.wtp.internal.AntPathMatcher;
+import org.maven.ide.eclipse.wtp.internal.AntPathMatcher.CompiledPattern;
+
+
+/**
+ * The includes/excludes of a resource, compiled once. Paths relative to the resource directory are checked against
+ * them and against the default excludes, the same way maven-resources-plugin does.
+ *
+ * @author Fred Bricon
+ */
+class ResourcePatterns {
+
+  private final AntPathMatcher matcher = new AntPathMatcher();
+
+  private final List<CompiledPattern> includes = new ArrayList<CompiledPattern>();
+
+  private final List<CompiledPattern> excludes = new ArrayList<CompiledPattern>();
+
+  ResourcePatterns(Xpp3Dom resource) {
+    List<String> includePatterns = getPatterns(resource, "includes");
+    if(includePatterns.isEmpty()) {
+      includePatterns.add("**/**");
+    }
+    for(String include : includePatterns) {
+      includes.add(matcher.compile(include));
+    }
+    List<String> excludePatterns = getPatterns(resource, "excludes");
+    for(String exclude : excludePatterns) {
+      excludes.add(matcher.compile(exclude));
+    }
+    for(String exclude : DirectoryScanner.DEFAULTEXCLUDES) {
+      excludes.add(matcher.compile(exclude));
+    }
+  }
+
+  boolean isIncluded(String path) {
+    String[] pathDirs = matcher.tokenizePath(path);
+    return matches(includes, path, pathDirs) && !matches(excludes, path, pathDirs);
+  }
+
+  private static boolean matches(List<CompiledPattern> patterns, String path, String[] pathDirs) {
+    for(CompiledPattern pattern : patterns) {
+      if(pattern.match(path, pathDirs)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static List<String> getPatterns(Xpp3Dom resource, String name) {
+    List<String> patterns = new ArrayList<String>();
+    Xpp3Dom patternsNode = resource.getChild(name);
+    if(patternsNode != null) {
+      for(Xpp3Dom patternNode : patternsNode.getChildren()) {
+        String pattern = patternNode.getValue();
+        if(StringUtils.isNotBlank(pattern)) {
+          pattern = pattern.trim().replace('\\', '/');
+          if(pattern.endsWith("/")) {
+            pattern += "**";
+          }
+          patterns.add(pattern);
+        }
+      }
+    }
+    return patterns;
+  }
+}
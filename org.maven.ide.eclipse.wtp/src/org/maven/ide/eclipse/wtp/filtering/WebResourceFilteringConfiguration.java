@@ -32,7 +32,7 @@ public class WebResourceFilteringConfiguration extends AbstractResourceFiltering
   
   public WebResourceFilteringConfiguration(IMavenProjectFacade mavenProjectFacade) {
     super(mavenProjectFacade);
-    pluginConfiguration = new WarPluginConfiguration(mavenProjectFacade.getMavenProject(), mavenProjectFacade.getProject());
+    pluginConfiguration = WarPluginConfiguration.get(mavenProjectFacade.getProject(), mavenProjectFacade.getMavenProject());
   }
 
   public IPath getTargetFolder() {
@@ -51,4 +51,12 @@ public class WebResourceFilteringConfiguration extends AbstractResourceFiltering
     return Arrays.asList(domResources);
   }
 
+  public List<String> getFilters() {
+    List<String> filters = mavenProjectFacade.getMavenProject().getBuild().getFilters();
+    if(filters == null) {
+      return Collections.emptyList();
+    }
+    return filters;
+  }
+
 }
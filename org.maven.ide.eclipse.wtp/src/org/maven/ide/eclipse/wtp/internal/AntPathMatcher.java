@@ -16,6 +16,8 @@
 
 package org.maven.ide.eclipse.wtp.internal;
 
+import java.util.Arrays;
+
 
 /**
  * PathMatcher implementation for Ant-style path patterns.
@@ -81,6 +83,20 @@ public class AntPathMatcher  {
 		return doMatch(pattern, path, false);
 	}
 
+	/**
+	 * Splits a path into its segments, the same way patterns and paths are split for matching.
+	 */
+	public String[] tokenizePath(String path) {
+		return StringUtils.tokenizeToStringArray(path, this.pathSeparator);
+	}
+
+	/**
+	 * Compiles the given pattern so it can be matched repeatedly against paths without being tokenized again.
+	 */
+	public CompiledPattern compile(String pattern) {
+		return new CompiledPattern(pattern);
+	}
+
 
 	/**
 	 * Actually match the given <code>path</code> against the given <code>pattern</code>.
@@ -92,13 +108,17 @@ public class AntPathMatcher  {
 	 * <code>false</code> if it didn't
 	 */
 	protected boolean doMatch(String pattern, String path, boolean fullMatch) {
+		return doMatch(pattern, tokenizePath(pattern), path, tokenizePath(path), fullMatch);
+	}
+
+	/**
+	 * Same as {@link #doMatch(String, String, boolean)}, with an already tokenized pattern and path.
+	 */
+	private boolean doMatch(String pattern, String[] pattDirs, String path, String[] pathDirs, boolean fullMatch) {
 		if (path.startsWith(this.pathSeparator) != pattern.startsWith(this.pathSeparator)) {
 			return false;
 		}
 
-		String[] pattDirs = StringUtils.tokenizeToStringArray(pattern, this.pathSeparator);
-		String[] pathDirs = StringUtils.tokenizeToStringArray(path, this.pathSeparator);
-
 		int pattIdxStart = 0;
 		int pattIdxEnd = pattDirs.length - 1;
 		int pathIdxStart = 0;
@@ -409,4 +429,45 @@ public class AntPathMatcher  {
 		return buffer.toString();
 	}
 
+
+	/**
+	 * A pattern split into segments once and for all. Patterns without any wildcard take a fast path, only
+	 * comparing segments.
+	 */
+	public class CompiledPattern {
+
+		private final String pattern;
+
+		private final String[] pattDirs;
+
+		private final boolean literal;
+
+		CompiledPattern(String pattern) {
+			this.pattern = pattern;
+			this.pattDirs = tokenizePath(pattern);
+			this.literal = !isPattern(pattern);
+		}
+
+		public String getPattern() {
+			return this.pattern;
+		}
+
+		public boolean match(String path) {
+			return match(path, tokenizePath(path));
+		}
+
+		/**
+		 * @param path the path to match
+		 * @param pathDirs the segments of the path, as returned by {@link AntPathMatcher#tokenizePath(String)}
+		 */
+		public boolean match(String path, String[] pathDirs) {
+			if (this.literal) {
+				return path.startsWith(pathSeparator) == this.pattern.startsWith(pathSeparator) &&
+						path.endsWith(pathSeparator) == this.pattern.endsWith(pathSeparator) &&
+						Arrays.equals(this.pattDirs, pathDirs);
+			}
+			return doMatch(this.pattern, this.pattDirs, path, pathDirs, true);
+		}
+	}
+
 }
@@ -9,6 +9,7 @@
 package org.maven.ide.eclipse.wtp.internal;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.eclipse.core.runtime.CoreException;
@@ -16,6 +17,7 @@ import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IExtension;
 import org.eclipse.core.runtime.IExtensionPoint;
 import org.eclipse.core.runtime.IExtensionRegistry;
+import org.eclipse.core.runtime.IRegistryEventListener;
 import org.eclipse.core.runtime.Platform;
 import org.maven.ide.eclipse.core.MavenConsole;
 import org.maven.ide.eclipse.core.MavenLogger;
@@ -28,6 +30,10 @@ import org.maven.ide.eclipse.wtp.AbstractDependencyConfigurator;
 
 /**
  * Extension reader
+ * <p>
+ * Dependency configurators are read once, into an immutable list, which is replaced as a whole (never modified) when
+ * the extension registry changes. Callers iterating over a list they got earlier are never affected by a reload.
+ * </p>
  * 
  * @author Eugene Kuleshov
  */
@@ -37,43 +43,89 @@ public class ExtensionReader {
   
   private static final String ELEMENT_CONFIGURATOR = "configurator";
   
-  private static ArrayList<AbstractDependencyConfigurator> dependencyConfigurators;
+  private static final Object lock = new Object();
+
+  /** null until read, or after the extension registry changed */
+  private static volatile List<AbstractDependencyConfigurator> dependencyConfigurators;
 
   public static List<AbstractDependencyConfigurator> readDependencyConfiguratorExtensions(MavenProjectManager projectManager,
       MavenRuntimeManager runtimeManager, IMavenMarkerManager markerManager, MavenConsole console) {
-    if (dependencyConfigurators == null) {
-      dependencyConfigurators = new ArrayList<AbstractDependencyConfigurator>();
-      
-      IExtensionRegistry registry = Platform.getExtensionRegistry();
-      IExtensionPoint configuratorsExtensionPoint = registry.getExtensionPoint(EXTENSION_DEPENDENCY_CONFIGURATORS);
-      if(configuratorsExtensionPoint != null) {
-        IExtension[] configuratorExtensions = configuratorsExtensionPoint.getExtensions();
-        for(IExtension extension : configuratorExtensions) {
-          IConfigurationElement[] elements = extension.getConfigurationElements();
-          for(IConfigurationElement element : elements) {
-            if(element.getName().equals(ELEMENT_CONFIGURATOR)) {
-              try {
-                Object o = element.createExecutableExtension(AbstractProjectConfigurator.ATTR_CLASS);
-  
-                AbstractDependencyConfigurator projectConfigurator = (AbstractDependencyConfigurator) o;
-                projectConfigurator.setProjectManager(projectManager);
-                projectConfigurator.setRuntimeManager(runtimeManager);
-                projectConfigurator.setMarkerManager(markerManager);
-                projectConfigurator.setConsole(console);
-                
-                dependencyConfigurators.add(projectConfigurator);
-              } catch(CoreException ex) {
-                MavenLogger.log(ex);
-              }
+    List<AbstractDependencyConfigurator> configurators = dependencyConfigurators;
+    if(configurators == null) {
+      synchronized(lock) {
+        configurators = dependencyConfigurators;
+        if(configurators == null) {
+          configurators = Collections.unmodifiableList(loadDependencyConfigurators(projectManager, runtimeManager,
+              markerManager, console));
+          dependencyConfigurators = configurators;
+        }
+      }
+    }
+    return configurators;
+  }
+
+  private static List<AbstractDependencyConfigurator> loadDependencyConfigurators(MavenProjectManager projectManager,
+      MavenRuntimeManager runtimeManager, IMavenMarkerManager markerManager, MavenConsole console) {
+    List<AbstractDependencyConfigurator> configurators = new ArrayList<AbstractDependencyConfigurator>();
+
+    IExtensionRegistry registry = Platform.getExtensionRegistry();
+    IExtensionPoint configuratorsExtensionPoint = registry.getExtensionPoint(EXTENSION_DEPENDENCY_CONFIGURATORS);
+    if(configuratorsExtensionPoint != null) {
+      IExtension[] configuratorExtensions = configuratorsExtensionPoint.getExtensions();
+      for(IExtension extension : configuratorExtensions) {
+        IConfigurationElement[] elements = extension.getConfigurationElements();
+        for(IConfigurationElement element : elements) {
+          if(element.getName().equals(ELEMENT_CONFIGURATOR)) {
+            try {
+              Object o = element.createExecutableExtension(AbstractProjectConfigurator.ATTR_CLASS);
+
+              AbstractDependencyConfigurator projectConfigurator = (AbstractDependencyConfigurator) o;
+              projectConfigurator.setProjectManager(projectManager);
+              projectConfigurator.setRuntimeManager(runtimeManager);
+              projectConfigurator.setMarkerManager(markerManager);
+              projectConfigurator.setConsole(console);
+
+              configurators.add(projectConfigurator);
+            } catch(CoreException ex) {
+              MavenLogger.log(ex);
             }
           }
         }
       }
-      
-      return dependencyConfigurators;
     }
-    
-    return dependencyConfigurators;
+    return configurators;
   }
-}
 
+  /**
+   * Forgets the dependency configurators read so far, they'll be read again on next access.
+   */
+  static void reset() {
+    synchronized(lock) {
+      dependencyConfigurators = null;
+    }
+  }
+
+  /**
+   * @return a listener reloading the dependency configurators when extensions are added or removed. It needs to be
+   *         registered for {@link #EXTENSION_DEPENDENCY_CONFIGURATORS}.
+   */
+  static IRegistryEventListener createRegistryListener() {
+    return new IRegistryEventListener() {
+      public void added(IExtension[] extensions) {
+        reset();
+      }
+
+      public void removed(IExtension[] extensions) {
+        reset();
+      }
+
+      public void added(IExtensionPoint[] extensionPoints) {
+        reset();
+      }
+
+      public void removed(IExtensionPoint[] extensionPoints) {
+        reset();
+      }
+    };
+  }
+}
@@ -8,7 +8,14 @@
 
 package org.maven.ide.eclipse.wtp.internal;
 
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IRegistryEventListener;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
+import org.maven.ide.eclipse.wtp.WarPluginConfiguration;
 import org.osgi.framework.BundleContext;
 
 /**
@@ -22,6 +29,10 @@ public class MavenWtpPlugin extends AbstractUIPlugin {
   
   private static MavenWtpPlugin instance;
 
+  private IResourceChangeListener configurationCacheInvalidator;
+
+  private IRegistryEventListener dependencyConfiguratorsListener;
+
   public MavenWtpPlugin() {
     instance = this;
   }
@@ -29,10 +40,27 @@ public class MavenWtpPlugin extends AbstractUIPlugin {
   @Override
   public void start(BundleContext context) throws Exception {
     super.start(context);
+    configurationCacheInvalidator = WarPluginConfiguration.createCacheInvalidator();
+    ResourcesPlugin.getWorkspace().addResourceChangeListener(configurationCacheInvalidator,
+        IResourceChangeEvent.POST_CHANGE);
+    dependencyConfiguratorsListener = ExtensionReader.createRegistryListener();
+    Platform.getExtensionRegistry().addListener(dependencyConfiguratorsListener,
+        ExtensionReader.EXTENSION_DEPENDENCY_CONFIGURATORS);
   }
 
   @Override
   public void stop(BundleContext context) throws Exception {
+    if(configurationCacheInvalidator != null) {
+      ResourcesPlugin.getWorkspace().removeResourceChangeListener(configurationCacheInvalidator);
+      configurationCacheInvalidator = null;
+    }
+    if(dependencyConfiguratorsListener != null) {
+      Platform.getExtensionRegistry().removeListener(dependencyConfiguratorsListener);
+      dependencyConfiguratorsListener = null;
+    }
+    ExtensionReader.reset();
+    //e.g. the pruning of the shared jars
+    Job.getJobManager().cancel(ID);
     super.stop(context);
   }
   
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2008 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.maven.ide.eclipse.wtp.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+
+
+/**
+ * Children of the Web Resources nodes of a viewer, per project. They're kept until a resource delta adds or removes a
+ * member of the web folders (the warSourceDirectory, the m2eclipse-wtp filtered web resources folder...) or changes
+ * the component of the project.
+ * <p>
+ * Children read while a project is invalidated are not cached : readers take a stamp before reading them, see
+ * {@link #getStamp()}.
+ * </p>
+ *
+ * @author Fred Bricon
+ */
+class WebResourcesCache {
+
+  private static final IPath COMPONENT_FILE = new Path(".settings/org.eclipse.wst.common.component");
+
+  private final Map<IProject, CachedResources> cache = new HashMap<IProject, CachedResources>();
+
+  /**
+   * Incremented on each invalidation.
+   */
+  private long generation;
+
+  /**
+   * The generation of the last invalidation of each project.
+   */
+  private final Map<IProject, Long> invalidations = new HashMap<IProject, Long>();
+
+  /**
+   * The generation of the last invalidation of all the projects.
+   */
+  private long clearGeneration;
+
+  /**
+   * @return the cached children of a project Web Resources node, or null.
+   */
+  synchronized Object[] get(IProject project) {
+    CachedResources cached = cache.get(project);
+    return cached == null ? null : cached.resources;
+  }
+
+  /**
+   * @return the stamp to pass to {@link #put(IProject, long, Object[], IContainer[])}, taken before reading the
+   *         resources.
+   */
+  synchronized long getStamp() {
+    return generation;
+  }
+
+  /**
+   * Caches the children of a project Web Resources node, unless the project was invalidated since stamp was taken.
+   *
+   * @param folders the web folders the resources were read from. If there's only one, resources are its members.
+   */
+  synchronized void put(IProject project, long stamp, Object[] resources, IContainer[] folders) {
+    Long invalidation = invalidations.get(project);
+    if(stamp < clearGeneration || (invalidation != null && stamp < invalidation.longValue())) {
+      return;
+    }
+    cache.put(project, new CachedResources(resources, folders));
+  }
+
+  synchronized void remove(IProject project) {
+    cache.remove(project);
+    invalidations.put(project, Long.valueOf(++generation));
+  }
+
+  synchronized void clear() {
+    cache.clear();
+    invalidations.clear();
+    clearGeneration = ++generation;
+  }
+
+  /**
+   * Removes the cached children affected by a resource delta.
+   *
+   * @return the projects whose Web Resources node needs to be refreshed.
+   */
+  synchronized Set<IProject> invalidate(IResourceDelta delta) {
+    Set<IProject> projects = new HashSet<IProject>();
+    for(IResourceDelta projectDelta : delta.getAffectedChildren()) {
+      IProject project = projectDelta.getResource().getProject();
+      if(project == null) {
+        continue;
+      }
+      CachedResources cached = cache.get(project);
+      if(cached == null) {
+        //The children of the project may be being read, the web folders are not known yet
+        invalidations.put(project, Long.valueOf(++generation));
+      } else if(cached.isAffectedBy(projectDelta)) {
+        invalidations.put(project, Long.valueOf(++generation));
+        projects.add(project);
+      }
+    }
+    cache.keySet().removeAll(projects);
+    return projects;
+  }
+
+  private static class CachedResources {
+
+    final Object[] resources;
+
+    /** project relative paths of the web folders */
+    final List<IPath> folders = new ArrayList<IPath>();
+
+    CachedResources(Object[] resources, IContainer[] folders) {
+      this.resources = resources;
+      for(IContainer folder : folders) {
+        this.folders.add(folder.getProjectRelativePath());
+      }
+    }
+
+    boolean isAffectedBy(IResourceDelta projectDelta) {
+      if(projectDelta.getKind() != IResourceDelta.CHANGED || projectDelta.findMember(COMPONENT_FILE) != null) {
+        return true;
+      }
+      for(IPath folder : folders) {
+        IResourceDelta folderDelta = projectDelta.findMember(folder);
+        if(folderDelta == null) {
+          continue;
+        }
+        if(folderDelta.getKind() != IResourceDelta.CHANGED) {
+          return true;
+        }
+        //members of a single web folder are listed
+        if(folders.size() == 1
+            && folderDelta.getAffectedChildren(IResourceDelta.ADDED | IResourceDelta.REMOVED).length > 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
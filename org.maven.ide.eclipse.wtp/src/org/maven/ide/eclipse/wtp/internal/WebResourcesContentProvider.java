@@ -9,12 +9,29 @@
 package org.maven.ide.eclipse.wtp.internal;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.viewers.AbstractTreeViewer;
+import org.eclipse.jface.viewers.Viewer;
 import org.eclipse.jst.j2ee.web.project.facet.WebFacetUtils;
+import org.eclipse.swt.widgets.Control;
 import org.eclipse.ui.IMemento;
 import org.eclipse.ui.model.BaseWorkbenchContentProvider;
 import org.eclipse.ui.navigator.ICommonContentExtensionSite;
@@ -22,20 +39,143 @@ import org.eclipse.ui.navigator.ICommonContentProvider;
 import org.eclipse.ui.navigator.IPipelinedTreeContentProvider;
 import org.eclipse.ui.navigator.PipelinedShapeModification;
 import org.eclipse.ui.navigator.PipelinedViewerUpdate;
+import org.eclipse.ui.progress.DeferredTreeContentManager;
 import org.eclipse.wst.common.project.facet.core.IFacetedProject;
 import org.eclipse.wst.common.project.facet.core.ProjectFacetsManager;
+import org.eclipse.wst.common.project.facet.core.events.IFacetedProjectEvent;
+import org.eclipse.wst.common.project.facet.core.events.IFacetedProjectListener;
 import org.maven.ide.eclipse.core.MavenLogger;
 
 /**
  * Web resources content provider
+ * <p>
+ * Whether a project has the web facet is cached, so expanding projects doesn't go through the facet framework on the
+ * UI thread. The cache is updated by facet change events, and cleared for projects closed, deleted, or whose facet
+ * metadata file changes. Facets of projects not in the cache are read by a background job, which refreshes the web
+ * projects it finds.
+ * </p>
+ * <p>
+ * Children of Web Resources nodes are listed in a background job, a pending node being displayed in the meantime,
+ * then cached until a resource delta affects them, see {@link WebResourcesCache}.
+ * </p>
  *
  * @author Eugene Kuleshov
  */
 public class WebResourcesContentProvider extends BaseWorkbenchContentProvider implements ICommonContentProvider, IPipelinedTreeContentProvider {
 
+  private static final IPath FACETS_FILE = new Path(".settings/org.eclipse.wst.common.project.facet.core.xml");
+
+  private final Map<IProject, Boolean> webProjects = new ConcurrentHashMap<IProject, Boolean>();
+
+  /**
+   * Projects whose facets are to be read by the {@link #facetsJob}.
+   */
+  private final Map<IProject, Boolean> unresolvedProjects = new ConcurrentHashMap<IProject, Boolean>();
+
+  private final Job facetsJob = new Job("Reading project facets") {
+    protected IStatus run(IProgressMonitor monitor) {
+      Set<IProject> found = new HashSet<IProject>();
+      for(IProject project : unresolvedProjects.keySet()) {
+        if(monitor.isCanceled()) {
+          return Status.CANCEL_STATUS;
+        }
+        unresolvedProjects.remove(project);
+        if(project.isAccessible() && readWebFacet(project)) {
+          found.add(project);
+        }
+      }
+      refresh(found);
+      return Status.OK_STATUS;
+    }
+  };
+
+  private final WebResourcesCache webResources = new WebResourcesCache();
+
+  private volatile AbstractTreeViewer viewer;
+
+  private volatile DeferredTreeContentManager contentManager;
+
+  /**
+   * Nodes whose children may be fetched by a background job, canceled on dispose.
+   */
+  private final Map<WebResourcesNode, Boolean> deferredNodes = new ConcurrentHashMap<WebResourcesNode, Boolean>();
+
+  private final IFacetedProjectListener facetListener = new IFacetedProjectListener() {
+    public void handleEvent(IFacetedProjectEvent event) {
+      IFacetedProject facetedProject = event.getProject();
+      webProjects.put(facetedProject.getProject(), Boolean.valueOf(facetedProject.hasProjectFacet(WebFacetUtils.WEB_FACET)));
+    }
+  };
+
+  private final IResourceChangeListener resourceListener = new IResourceChangeListener() {
+    public void resourceChanged(IResourceChangeEvent event) {
+      IResource resource = event.getResource();
+      if(resource instanceof IProject) {
+        //PRE_CLOSE or PRE_DELETE
+        webProjects.remove(resource);
+        webResources.remove((IProject) resource);
+        return;
+      }
+      IResourceDelta delta = event.getDelta();
+      if(delta == null) {
+        return;
+      }
+      if(!webProjects.isEmpty()) {
+        for(IResourceDelta projectDelta : delta.getAffectedChildren()) {
+          if(projectDelta.findMember(FACETS_FILE) != null) {
+            webProjects.remove(projectDelta.getResource());
+          }
+        }
+      }
+      refreshWebResources(webResources.invalidate(delta));
+    }
+  };
+
   // ICommonContentProvider
   
   public void init(ICommonContentExtensionSite config) {
+    facetsJob.setSystem(true);
+    ProjectFacetsManager.addListener(facetListener, IFacetedProjectEvent.Type.POST_INSTALL,
+        IFacetedProjectEvent.Type.POST_UNINSTALL, IFacetedProjectEvent.Type.POST_VERSION_CHANGE);
+    ResourcesPlugin.getWorkspace().addResourceChangeListener(resourceListener,
+        IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE | IResourceChangeEvent.POST_CHANGE);
+  }
+
+  public void dispose() {
+    ProjectFacetsManager.removeListener(facetListener);
+    ResourcesPlugin.getWorkspace().removeResourceChangeListener(resourceListener);
+    facetsJob.cancel();
+    unresolvedProjects.clear();
+    cancelDeferredNodes(contentManager);
+    viewer = null;
+    contentManager = null;
+    webProjects.clear();
+    webResources.clear();
+    super.dispose();
+  }
+
+  private void cancelDeferredNodes(DeferredTreeContentManager manager) {
+    if(manager != null) {
+      for(WebResourcesNode node : deferredNodes.keySet()) {
+        manager.cancel(node);
+      }
+    }
+    deferredNodes.clear();
+  }
+
+  public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+    super.inputChanged(viewer, oldInput, newInput);
+    if(viewer instanceof AbstractTreeViewer) {
+      if(viewer != this.viewer) {
+        cancelDeferredNodes(contentManager);
+        this.viewer = (AbstractTreeViewer) viewer;
+        contentManager = new DeferredTreeContentManager(this.viewer);
+      }
+    } else {
+      cancelDeferredNodes(contentManager);
+      this.viewer = null;
+      contentManager = null;
+    }
   }
 
   public void restoreState(IMemento memento) {
@@ -46,11 +186,66 @@ public class WebResourcesContentProvider extends BaseWorkbenchContentProvider im
 
   public Object[] getChildren(Object element) {
     if(element instanceof WebResourcesNode) {
-      return ((WebResourcesNode) element).getResources();
+      WebResourcesNode node = (WebResourcesNode) element;
+      Object[] resources = webResources.get(node.getProject());
+      if(resources != null) {
+        return resources;
+      }
+      DeferredTreeContentManager manager = contentManager;
+      if(manager != null) {
+        //Returns a pending node, children will be added by a background job
+        Object[] pending = manager.getChildren(node);
+        if(pending != null) {
+          deferredNodes.put(node, Boolean.TRUE);
+          return pending;
+        }
+      }
+      return node.getResources();
     }
     return super.getChildren(element);
   }
 
+  public boolean hasChildren(Object element) {
+    if(element instanceof WebResourcesNode) {
+      return true;
+    }
+    return super.hasChildren(element);
+  }
+
+  /**
+   * Refreshes the Web Resources nodes of projects, whose children have been invalidated.
+   */
+  private void refreshWebResources(Set<IProject> projects) {
+    Set<WebResourcesNode> nodes = new HashSet<WebResourcesNode>();
+    for(IProject project : projects) {
+      nodes.add(new WebResourcesNode(project, webResources));
+    }
+    refresh(nodes);
+  }
+
+  /**
+   * Refreshes elements of the viewer, in the UI thread.
+   */
+  private void refresh(final Set<?> elements) {
+    final AbstractTreeViewer treeViewer = viewer;
+    if(elements.isEmpty() || treeViewer == null) {
+      return;
+    }
+    final Control control = treeViewer.getControl();
+    if(control == null || control.isDisposed()) {
+      return;
+    }
+    control.getDisplay().asyncExec(new Runnable() {
+      public void run() {
+        if(!control.isDisposed()) {
+          for(Object element : elements) {
+            treeViewer.refresh(element);
+          }
+        }
+      }
+    });
+  }
+
   // IPipelinedTreeContentProvider
 
   @SuppressWarnings("rawtypes")
@@ -61,23 +256,46 @@ public class WebResourcesContentProvider extends BaseWorkbenchContentProvider im
   public void getPipelinedChildren(Object parent, Set currentChildren) {
     if (parent instanceof IProject) {
       IProject project = (IProject) parent;
-      if(project.isAccessible()) {
-        try {
-          IFacetedProject facetedProject = ProjectFacetsManager.create(project);//MNGECLIPSE-1992 there's no reason to actually create a ProjectFacet at this point
-          if(facetedProject != null && facetedProject.hasProjectFacet(WebFacetUtils.WEB_FACET)) {
-            List newChildren = new ArrayList<Object>();
-            newChildren.add(new WebResourcesNode(project));
-            newChildren.addAll(currentChildren);
-            currentChildren.clear();
-            currentChildren.addAll(newChildren);
-          }
-        } catch(CoreException ex) {
-          MavenLogger.log(ex);
-        }
+      if(project.isAccessible() && isWebProject(project)) {
+        List newChildren = new ArrayList<Object>();
+        newChildren.add(new WebResourcesNode(project, webResources));
+        newChildren.addAll(currentChildren);
+        currentChildren.clear();
+        currentChildren.addAll(newChildren);
       }
     }
   }
 
+  /**
+   * @return true if the project is known to have the web facet. The facets of a project which is not in the cache are
+   *         read in the background, false is returned in the meantime, and the project is refreshed if it turns out
+   *         to be a web project.
+   */
+  private boolean isWebProject(IProject project) {
+    Boolean webProject = webProjects.get(project);
+    if(webProject == null) {
+      unresolvedProjects.put(project, Boolean.TRUE);
+      facetsJob.schedule();
+      return false;
+    }
+    return webProject.booleanValue();
+  }
+
+  /**
+   * Reads the facets of a project, and caches whether it has the web facet.
+   */
+  private boolean readWebFacet(IProject project) {
+    Boolean webProject = Boolean.FALSE;
+    try {
+      IFacetedProject facetedProject = ProjectFacetsManager.create(project);//MNGECLIPSE-1992 there's no reason to actually create a ProjectFacet at this point
+      webProject = Boolean.valueOf(facetedProject != null && facetedProject.hasProjectFacet(WebFacetUtils.WEB_FACET));
+    } catch(CoreException ex) {
+      MavenLogger.log(ex);
+    }
+    webProjects.put(project, webProject);
+    return webProject.booleanValue();
+  }
+
   public Object getPipelinedParent(Object element, Object suggestedParent) {
     return suggestedParent;
   }
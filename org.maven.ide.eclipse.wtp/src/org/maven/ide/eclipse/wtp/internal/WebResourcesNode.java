@@ -11,8 +11,11 @@ package org.maven.ide.eclipse.wtp.internal;
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.eclipse.jface.resource.ImageDescriptor;
-import org.eclipse.ui.model.IWorkbenchAdapter;
+import org.eclipse.ui.model.IDeferredWorkbenchAdapter;
+import org.eclipse.ui.progress.IElementCollector;
 import org.eclipse.wst.common.componentcore.ComponentCore;
 import org.eclipse.wst.common.componentcore.resources.IVirtualComponent;
 import org.eclipse.wst.common.componentcore.resources.IVirtualFolder;
@@ -21,28 +24,85 @@ import org.maven.ide.eclipse.core.MavenLogger;
 
 /**
  * Web Resources node
+ * <p>
+ * Children can be fetched in a background job, and are then added to the viewer in batches, see
+ * {@link IDeferredWorkbenchAdapter}.
+ * </p>
  * 
  * @author Eugene Kuleshov
  */
-public class WebResourcesNode implements IWorkbenchAdapter {
+public class WebResourcesNode implements IDeferredWorkbenchAdapter {
+
+  private static final int BATCH_SIZE = 100;
 
   private final IProject project;
 
+  private final WebResourcesCache cache;
+
   public WebResourcesNode(IProject project) {
+    this(project, null);
+  }
+
+  WebResourcesNode(IProject project, WebResourcesCache cache) {
     this.project = project;
+    this.cache = cache;
+  }
+
+  public IProject getProject() {
+    return project;
   }
 
   public Object[] getResources() {
+    if(cache != null) {
+      Object[] resources = cache.get(project);
+      if(resources != null) {
+        return resources;
+      }
+    }
+
+    //Taken first, so the resources aren't cached if they're invalidated while being read
+    long stamp = cache == null ? 0 : cache.getStamp();
     IContainer[] folders = getWebFolders();
+    Object[] resources = folders;
     if(folders != null && folders.length == 1) {
       try {
-        return folders[0].members();
+        resources = folders[0].members();
       } catch(CoreException ex) {
         MavenLogger.log(ex);
+        return folders;
       }
     }
 
-    return folders;
+    if(cache != null && folders != null) {
+      cache.put(project, stamp, resources, folders);
+    }
+    return resources;
+  }
+
+  // IDeferredWorkbenchAdapter
+
+  public void fetchDeferredChildren(Object object, IElementCollector collector, IProgressMonitor monitor) {
+    Object[] resources = getResources();
+    if(resources != null) {
+      monitor.beginTask(getLabel(object), resources.length);
+      for(int i = 0; i < resources.length && !monitor.isCanceled(); i += BATCH_SIZE) {
+        int length = Math.min(BATCH_SIZE, resources.length - i);
+        Object[] batch = new Object[length];
+        System.arraycopy(resources, i, batch, 0, length);
+        collector.add(batch, monitor);
+        monitor.worked(length);
+      }
+      monitor.done();
+    }
+    collector.done();
+  }
+
+  public boolean isContainer() {
+    return true;
+  }
+
+  public ISchedulingRule getRule(Object object) {
+    return null;
   }
 
   // IWorkbenchAdapter
@@ -77,4 +137,12 @@ public class WebResourcesNode implements IWorkbenchAdapter {
     return folders;
   }
 
+  public boolean equals(Object obj) {
+    return obj instanceof WebResourcesNode && project.equals(((WebResourcesNode) obj).project);
+  }
+
+  public int hashCode() {
+    return project.hashCode();
+  }
+
 }
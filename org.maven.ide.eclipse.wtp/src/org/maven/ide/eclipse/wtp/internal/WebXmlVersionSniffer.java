@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2008 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.maven.ide.eclipse.wtp.internal;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * Reads the version of a web.xml file from its prolog only : the DOCTYPE (Servlet 2.2 and 2.3) or the version
+ * attribute of the &lt;web-app&gt; root element (Servlet 2.4 and later). Reading stops as soon as the root element
+ * start tag is read, so the size of the rest of the file doesn't matter.
+ * <p>
+ * Versions are not cached here, see WarPluginConfiguration.
+ * </p>
+ *
+ * @author Fred Bricon
+ */
+public class WebXmlVersionSniffer {
+
+  /**
+   * Give up if the root element can't be found in the first 64K characters (huge internal DTD subsets, not xml...).
+   */
+  private static final int MAX_PROLOG_LENGTH = 64 * 1024;
+
+  private static final String WEB_APP = "web-app";
+
+  private static final Pattern ATTRIBUTE = Pattern.compile("([\\w:.-]+)\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)')");
+
+  /**
+   * Outcome of parsing the characters read so far.
+   */
+  private enum Status {
+    /** The prolog read so far is incomplete */
+    INCOMPLETE,
+    /** The root element was read, or the prolog isn't valid */
+    DONE
+  }
+
+  private final StringBuilder prolog = new StringBuilder(1024);
+
+  /**
+   * Start of the first construct not parsed yet : complete constructs are never parsed again.
+   */
+  private int position;
+
+  private String doctype;
+
+  private String version;
+
+  private WebXmlVersionSniffer() {
+    //Only used by sniff(InputStream)
+  }
+
+  /**
+   * @return the version of web.xml (2.2, 2.3, 2.4, 2.5, 3.0) or null if it can't be determined from its prolog.
+   */
+  public static String sniff(InputStream is) throws IOException {
+    Reader reader = createReader(is);
+    WebXmlVersionSniffer sniffer = new WebXmlVersionSniffer();
+    char[] buffer = new char[1024];
+    int read;
+    while(sniffer.prolog.length() < MAX_PROLOG_LENGTH && (read = reader.read(buffer)) > -1) {
+      sniffer.prolog.append(buffer, 0, read);
+      if(sniffer.parse() == Status.DONE) {
+        return sniffer.version;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Only markup characters and attribute values matter, so any ASCII compatible encoding can be read as ISO-8859-1.
+   * UTF-16 is detected from its BOM or from the first characters of the xml declaration.
+   */
+  private static Reader createReader(InputStream is) throws IOException {
+    BufferedInputStream bis = new BufferedInputStream(is, 4);
+    bis.mark(4);
+    int b0 = bis.read();
+    int b1 = bis.read();
+    int b2 = bis.read();
+    bis.reset();
+    String encoding = "ISO-8859-1";
+    if(b0 == 0xFE && b1 == 0xFF || b0 == 0x00 && b1 == 0x3C) {
+      encoding = "UTF-16BE";
+    } else if(b0 == 0xFF && b1 == 0xFE || b0 == 0x3C && b1 == 0x00) {
+      encoding = "UTF-16LE";
+    } else if(b0 == 0xEF && b1 == 0xBB && b2 == 0xBF) {
+      bis.skip(3);
+    }
+    return new InputStreamReader(bis, encoding);
+  }
+
+  /**
+   * Parses the constructs completed by the last characters read. Sets {@link #version} when done.
+   */
+  private Status parse() {
+    StringBuilder s = prolog;
+    while(true) {
+      int i = skipWhitespaces(s, position);
+      if(i >= s.length()) {
+        return Status.INCOMPLETE;
+      }
+      if(s.charAt(i) == '\uFEFF') {
+        position = i + 1;
+        continue;
+      }
+      if(s.charAt(i) != '<') {
+        return Status.DONE;
+      }
+      if(startsWith(s, "<?", i)) {
+        int end = s.indexOf("?>", i + 2);
+        if(end < 0) {
+          return Status.INCOMPLETE;
+        }
+        position = end + 2;
+      } else if(startsWith(s, "<!--", i)) {
+        int end = s.indexOf("-->", i + 4);
+        if(end < 0) {
+          return Status.INCOMPLETE;
+        }
+        position = end + 3;
+      } else if(startsWith(s, "<!DOCTYPE", i)) {
+        int end = findEndOfTag(s, i);
+        if(end < 0) {
+          return Status.INCOMPLETE;
+        }
+        doctype = s.substring(i, end);
+        position = end + 1;
+      } else if(s.length() < i + 9) {
+        //Can't tell a declaration from the root element yet
+        return Status.INCOMPLETE;
+      } else if(s.charAt(i + 1) == '!') {
+        //Unexpected declaration
+        return Status.DONE;
+      } else {
+        int end = findEndOfTag(s, i);
+        if(end < 0) {
+          return Status.INCOMPLETE;
+        }
+        version = getVersion(s.substring(i + 1, end), doctype);
+        return Status.DONE;
+      }
+    }
+  }
+
+  private static String getVersion(String rootTag, String doctype) {
+    int nameEnd = 0;
+    while(nameEnd < rootTag.length() && !Character.isWhitespace(rootTag.charAt(nameEnd))
+        && rootTag.charAt(nameEnd) != '/') {
+      nameEnd++ ;
+    }
+    String name = rootTag.substring(0, nameEnd);
+    if(!WEB_APP.equals(name.substring(name.indexOf(':') + 1))) {
+      return null;
+    }
+
+    Matcher attributes = ATTRIBUTE.matcher(rootTag);
+    attributes.region(nameEnd, rootTag.length());
+    while(attributes.find()) {
+      if("version".equals(attributes.group(1))) {
+        String version = attributes.group(2) != null ? attributes.group(2) : attributes.group(3);
+        version = version.trim();
+        if("2.4".equals(version) || "2.5".equals(version) || "3.0".equals(version)) {
+          return version;
+        }
+        return null;
+      }
+    }
+
+    if(doctype != null) {
+      if(doctype.indexOf("Web Application 2.2") > -1 || doctype.indexOf("web-app_2_2.dtd") > -1) {
+        return "2.2";
+      }
+      if(doctype.indexOf("Web Application 2.3") > -1 || doctype.indexOf("web-app_2_3.dtd") > -1) {
+        return "2.3";
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the index of the '>' closing the tag starting at start, ignoring quoted values and DTD internal subsets,
+   *         or -1 if it's not found.
+   */
+  private static int findEndOfTag(CharSequence s, int start) {
+    char quote = 0;
+    boolean inSubset = false;
+    for(int i = start + 1; i < s.length(); i++ ) {
+      char c = s.charAt(i);
+      if(quote != 0) {
+        if(c == quote) {
+          quote = 0;
+        }
+      } else if(c == '"' || c == '\'') {
+        quote = c;
+      } else if(c == '[') {
+        inSubset = true;
+      } else if(c == ']') {
+        inSubset = false;
+      } else if(c == '>' && !inSubset) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean startsWith(CharSequence s, String prefix, int start) {
+    if(s.length() < start + prefix.length()) {
+      return false;
+    }
+    for(int i = 0; i < prefix.length(); i++ ) {
+      if(s.charAt(start + i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int skipWhitespaces(CharSequence s, int i) {
+    while(i < s.length() && Character.isWhitespace(s.charAt(i))) {
+      i++ ;
+    }
+    return i;
+  }
+}